@@ -0,0 +1,186 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.drive;
+
+import org.tahomarobotics.robot.state.RobotSpeed;
+import org.tahomarobotics.robot.statespace.Matrix;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Swerve drive kinematics for any number of modules over primitive arrays.  Inverse kinematics
+ * converts a robot speed into module angles and speeds in one pass, desaturating so no module
+ * exceeds its maximum speed and flipping a module 180 degrees (with reversed speed) instead of
+ * rotating it more than 90 degrees.  Forward kinematics is the least squares robot speed for the
+ * measured module states.  Nothing is allocated per call.
+ * <p>
+ * Module positions are robot relative in inches (x forward, y left), angles in degrees, speeds in
+ * inches/second and the rotational speed in radians/second.
+ */
+public class SwerveKinematics {
+
+	private final int count;
+	private final double[] moduleX;
+	private final double[] moduleY;
+	private final double maxModuleSpeed;
+
+	// inverse of the forward kinematics normal matrix (3x3, row major)
+	private final double[] normalInverse = new double[9];
+
+	/**
+	 * Creates the kinematics for the given module locations.
+	 *
+	 * @param moduleX - module x locations (inches forward of center)
+	 * @param moduleY - module y locations (inches left of center)
+	 * @param maxModuleSpeed - maximum module wheel speed (inches/second)
+	 */
+	public SwerveKinematics(double[] moduleX, double[] moduleY, double maxModuleSpeed) {
+		if (moduleX.length != moduleY.length || moduleX.length < 2) {
+			throw new IllegalArgumentException("at least two modules with x and y locations required");
+		}
+		this.count = moduleX.length;
+		this.moduleX = moduleX.clone();
+		this.moduleY = moduleY.clone();
+		this.maxModuleSpeed = maxModuleSpeed;
+
+		// normal matrix of rows [1 0 -y] (x velocity) and [0 1 x] (y velocity)
+		double sx = 0, sy = 0, sr = 0;
+		for (int i = 0; i < count; i++) {
+			sx += this.moduleX[i];
+			sy += this.moduleY[i];
+			sr += this.moduleX[i] * this.moduleX[i] + this.moduleY[i] * this.moduleY[i];
+		}
+		double[][] inverse = Matrix.inverse(new double[][] {
+			{ count, 0, -sy },
+			{ 0, count, sx },
+			{ -sy, sx, sr } });
+		for (int r = 0; r < 3; r++) {
+			for (int c = 0; c < 3; c++) {
+				normalInverse[r * 3 + c] = inverse[r][c];
+			}
+		}
+	}
+
+	/**
+	 * Inverse kinematics without the flip optimization.
+	 *
+	 * @param speed - robot relative speed
+	 * @param angles - receives the module angles (degrees), also the angle kept when a module is stopped
+	 * @param speeds - receives the module speeds (inches/second)
+	 * @return desaturation scale applied (1 when no module exceeded the maximum speed)
+	 */
+	public double toModuleStates(RobotSpeed speed, double[] angles, double[] speeds) {
+		return toModuleStates(speed, angles, angles, speeds, false);
+	}
+
+	/**
+	 * Inverse kinematics with the flip optimization relative to the current module angles.  Output
+	 * angles are within 90 degrees of the current angles (not wrapped) so they can be used directly
+	 * as steering position set-points.
+	 *
+	 * @param speed - robot relative speed
+	 * @param currentAngles - current module angles (degrees)
+	 * @param angles - receives the module angles (degrees, may be the current angles array)
+	 * @param speeds - receives the module speeds (inches/second, negative when flipped)
+	 * @return desaturation scale applied (1 when no module exceeded the maximum speed)
+	 */
+	public double toModuleStates(RobotSpeed speed, double[] currentAngles, double[] angles, double[] speeds) {
+		return toModuleStates(speed, currentAngles, angles, speeds, true);
+	}
+
+	private double toModuleStates(RobotSpeed speed, double[] currentAngles, double[] angles, double[] speeds, boolean optimize) {
+		double forward = speed.forward;
+		double strafe = speed.strafe;
+		double rotational = speed.rotational;
+
+		// module velocities and the largest speed
+		double max = 0;
+		for (int i = 0; i < count; i++) {
+			double vx = forward - rotational * moduleY[i];
+			double vy = strafe + rotational * moduleX[i];
+			double s = Math.sqrt(vx * vx + vy * vy);
+			speeds[i] = s;
+			max = Math.max(max, s);
+
+			double current = currentAngles[i];
+			if (s < 1e-9) {
+				// hold the steering when stopped
+				angles[i] = current;
+				continue;
+			}
+			double angle = Math.toDegrees(Math.atan2(vy, vx));
+			if (optimize) {
+				double delta = MathUtil.normalizeAngleDegrees(angle - current);
+				if (delta > 90) {
+					delta -= 180;
+					speeds[i] = -s;
+				} else if (delta < -90) {
+					delta += 180;
+					speeds[i] = -s;
+				}
+				angle = current + delta;
+			}
+			angles[i] = angle;
+		}
+
+		// desaturate all modules together to keep the direction of motion
+		double scale = 1;
+		if (max > maxModuleSpeed) {
+			scale = maxModuleSpeed / max;
+			for (int i = 0; i < count; i++) {
+				speeds[i] *= scale;
+			}
+		}
+		return scale;
+	}
+
+	/**
+	 * Forward kinematics, the least squares robot speed for the measured module states.
+	 *
+	 * @param angles - module angles (degrees)
+	 * @param speeds - module speeds (inches/second)
+	 * @param speed - receives the robot relative speed
+	 * @return speed
+	 */
+	public RobotSpeed toRobotSpeed(double[] angles, double[] speeds, RobotSpeed speed) {
+		double bx = 0, by = 0, br = 0;
+		for (int i = 0; i < count; i++) {
+			double angle = Math.toRadians(angles[i]);
+			double vx = speeds[i] * Math.cos(angle);
+			double vy = speeds[i] * Math.sin(angle);
+			bx += vx;
+			by += vy;
+			br += moduleX[i] * vy - moduleY[i] * vx;
+		}
+		double[] n = normalInverse;
+		speed.update(
+				n[0] * bx + n[1] * by + n[2] * br,
+				n[6] * bx + n[7] * by + n[8] * br,
+				n[3] * bx + n[4] * by + n[5] * br);
+		return speed;
+	}
+
+	public int getModuleCount() {
+		return count;
+	}
+
+	public double getMaxModuleSpeed() {
+		return maxModuleSpeed;
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.motion;
+
+import org.tahomarobotics.robot.motion.MotionProfile.Status;
+import org.tahomarobotics.robot.motion.MotionProfileFactory.Profile;
+
+/**
+ * Coordinated Motion Profile moves several axes (such as lift, arm and wrist) from rest to rest so they
+ * all start and finish together.  The minimum time profile of each axis is found first, then every axis
+ * is re-built for the longest duration.  Stretching a profile in time by a factor k is the same as
+ * building it with the velocity, acceleration and jerk limits divided by k, k^2 and k^3, so the slower
+ * profiles are solved in closed form and keep the shape of their minimum time profile.
+ * <p>
+ * The axis profiles are re-used between plans and set-points for all axes are filled in one call.
+ */
+public class CoordinatedMotionProfile {
+
+	private final MotionProfile[] profiles;
+
+	// per axis limits
+	private final double[] maxVelocity;
+	private final double[] maxAcceleration;
+	private final double[] maxJerk;
+
+	private double startTime = 0;
+	private double duration = 0;
+
+	/**
+	 * Creates a coordinated profile with all limits zero.
+	 *
+	 * @param profile - Trapezoid or S-Curve
+	 * @param axisCount - number of axes
+	 */
+	public CoordinatedMotionProfile(Profile profile, int axisCount) {
+		profiles = new MotionProfile[axisCount];
+		for (int i = 0; i < axisCount; i++) {
+			profiles[i] = MotionProfileFactory.createMotionProfile(profile);
+		}
+		maxVelocity = new double[axisCount];
+		maxAcceleration = new double[axisCount];
+		maxJerk = new double[axisCount];
+	}
+
+	/**
+	 * Sets the limits of one axis.
+	 *
+	 * @param axis - axis index
+	 * @param maxVelocity - velocity limit
+	 * @param maxAcceleration - acceleration limit
+	 * @param maxJerk - jerk limit (not used in Trapezoid)
+	 */
+	public void setLimits(int axis, double maxVelocity, double maxAcceleration, double maxJerk) {
+		this.maxVelocity[axis] = maxVelocity;
+		this.maxAcceleration[axis] = maxAcceleration;
+		this.maxJerk[axis] = maxJerk;
+	}
+
+	/**
+	 * Plans a coordinated move of all axes.  Does not allocate.
+	 *
+	 * @param startTime - time the move starts (seconds)
+	 * @param startPositions - position of each axis at the start
+	 * @param endPositions - position of each axis at the end
+	 * @return OK, or the status of the first axis which failed in which case all axes hold their start
+	 */
+	public Status plan(double startTime, double[] startPositions, double[] endPositions) {
+		this.startTime = startTime;
+		duration = 0;
+
+		// minimum time of each axis
+		for (int i = 0; i < profiles.length; i++) {
+			Status status = profiles[i].set(startTime, startPositions[i], endPositions[i], 0, 0,
+					maxVelocity[i], maxAcceleration[i], maxJerk[i]);
+			if (status != Status.OK) {
+				hold(startPositions);
+				return status;
+			}
+			duration = Math.max(duration, profiles[i].getEndTime() - startTime);
+		}
+
+		// stretch the faster axes to the common duration
+		for (int i = 0; i < profiles.length; i++) {
+			double axisDuration = profiles[i].getEndTime() - startTime;
+			if (axisDuration <= 0 || axisDuration >= duration) {
+				continue;
+			}
+			double k = duration / axisDuration;
+			profiles[i].set(startTime, startPositions[i], endPositions[i], 0, 0,
+					maxVelocity[i] / k, maxAcceleration[i] / (k * k), maxJerk[i] / (k * k * k));
+		}
+		return Status.OK;
+	}
+
+	/**
+	 * Fills the set-point of every axis at the given time.
+	 *
+	 * @param time - time (seconds) for the set-points
+	 * @param setpoints - one set-point per axis to be updated
+	 * @return true while any axis is moving, false once all are complete
+	 */
+	public boolean getSetpoints(double time, MotionState[] setpoints) {
+		boolean active = false;
+		for (int i = 0; i < profiles.length; i++) {
+			active |= profiles[i].getSetpoint(time, setpoints[i]);
+		}
+		return active;
+	}
+
+	/**
+	 * Returns the common duration of the move.
+	 *
+	 * @return duration (seconds)
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	public double getStartTime() {
+		return startTime;
+	}
+
+	public double getEndTime() {
+		return startTime + duration;
+	}
+
+	public int getAxisCount() {
+		return profiles.length;
+	}
+
+	/**
+	 * Returns the profile of one axis.
+	 *
+	 * @param axis - axis index
+	 * @return axis motion profile
+	 */
+	public MotionProfile getProfile(int axis) {
+		return profiles[axis];
+	}
+
+	private void hold(double[] positions) {
+		duration = 0;
+		for (int i = 0; i < profiles.length; i++) {
+			profiles[i].set(startTime, positions[i], positions[i], 0, 0,
+					maxVelocity[i], maxAcceleration[i], maxJerk[i]);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.motion;
+
+import org.tahomarobotics.robot.statespace.LinearPlant;
+
+/**
+ * Feed-forward Identifier estimates the static, velocity and acceleration feed-forward gains of a
+ * mechanism (u = kS * sign(v) + kV * v + kA * a) from (output, velocity, acceleration) samples as
+ * they arrive.  It uses recursive least squares with a forgetting factor, so each sample costs a
+ * fixed small amount of work and no history is kept.
+ * <p>
+ * The gains are in the units of the samples, e.g. motor output (percent or volts) per inch/second.
+ */
+public class FeedforwardIdentifier {
+
+	public static final double DEFAULT_FORGETTING_FACTOR = 0.999;
+
+	// initial parameter covariance (large means no prior knowledge)
+	private static final double INITIAL_COVARIANCE = 1e4;
+
+	private final double forgettingFactor;
+	private final double minVelocity;
+
+	// parameters kS, kV, kA
+	private final double[] theta = new double[3];
+
+	// symmetric covariance, row major 3 x 3
+	private final double[] p = new double[9];
+
+	private final double[] phi = new double[3];
+	private final double[] pphi = new double[3];
+
+	private long sampleCount;
+	private double errorVariance;
+
+	/**
+	 * Creates an identifier with the default forgetting factor, ignoring samples while stopped.
+	 *
+	 * @param minVelocity - samples below this speed are ignored (static friction is not linear)
+	 */
+	public FeedforwardIdentifier(double minVelocity) {
+		this(DEFAULT_FORGETTING_FACTOR, minVelocity);
+	}
+
+	/**
+	 * Creates an identifier.
+	 *
+	 * @param forgettingFactor - weight of older samples (0.95 - 1.0, 1.0 never forgets)
+	 * @param minVelocity - samples below this speed are ignored (static friction is not linear)
+	 */
+	public FeedforwardIdentifier(double forgettingFactor, double minVelocity) {
+		this.forgettingFactor = forgettingFactor;
+		this.minVelocity = minVelocity;
+		reset();
+	}
+
+	/**
+	 * Clears the estimates and starts over.
+	 */
+	public void reset() {
+		for (int i = 0; i < 9; i++) {
+			p[i] = (i % 4 == 0) ? INITIAL_COVARIANCE : 0;
+		}
+		theta[0] = theta[1] = theta[2] = 0;
+		sampleCount = 0;
+		errorVariance = 0;
+	}
+
+	/**
+	 * Adds a sample of the applied output and the resulting motion.
+	 *
+	 * @param output - applied motor output
+	 * @param velocity - measured velocity
+	 * @param acceleration - measured acceleration
+	 * @return false if the sample was ignored
+	 */
+	public boolean addSample(double output, double velocity, double acceleration) {
+		if (Math.abs(velocity) < minVelocity || Double.isNaN(output + velocity + acceleration)) {
+			return false;
+		}
+
+		phi[0] = Math.signum(velocity);
+		phi[1] = velocity;
+		phi[2] = acceleration;
+
+		// P phi and phi' P phi
+		double denominator = forgettingFactor;
+		for (int i = 0; i < 3; i++) {
+			pphi[i] = p[i * 3] * phi[0] + p[i * 3 + 1] * phi[1] + p[i * 3 + 2] * phi[2];
+			denominator += phi[i] * pphi[i];
+		}
+
+		double error = output - (theta[0] * phi[0] + theta[1] * phi[1] + theta[2] * phi[2]);
+
+		// theta += K error, P = (P - K phi' P) / lambda with K = P phi / denominator
+		for (int i = 0; i < 3; i++) {
+			theta[i] += pphi[i] / denominator * error;
+		}
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				p[i * 3 + j] = (p[i * 3 + j] - pphi[i] * pphi[j] / denominator) / forgettingFactor;
+			}
+		}
+
+		// residual variance from the a-posteriori error, a running mean until the forgetting factor
+		// weights recent samples more (never when 1.0)
+		double residual = output - (theta[0] * phi[0] + theta[1] * phi[1] + theta[2] * phi[2]);
+		sampleCount++;
+		double weight = Math.max(1.0 / sampleCount, 1 - forgettingFactor);
+		errorVariance += weight * (residual * residual - errorVariance);
+		return true;
+	}
+
+	public double getKs() {
+		return theta[0];
+	}
+
+	public double getKv() {
+		return theta[1];
+	}
+
+	public double getKa() {
+		return theta[2];
+	}
+
+	/**
+	 * Returns the number of samples used.
+	 *
+	 * @return sample count
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * Returns the variance of the error remaining after each sample is fitted, the mean over all
+	 * samples or exponentially weighted to recent samples when the forgetting factor is below 1.0.
+	 *
+	 * @return prediction error variance
+	 */
+	public double getErrorVariance() {
+		return errorVariance;
+	}
+
+	/**
+	 * Indicates if the estimates have settled: enough samples have been used and the parameter
+	 * uncertainty of kV and kA is below the provided relative tolerance.
+	 *
+	 * @param minSamples - minimum number of samples
+	 * @param tolerance - relative standard deviation of kV and kA (e.g. 0.05)
+	 * @return true if converged
+	 */
+	public boolean isConverged(long minSamples, double tolerance) {
+		if (sampleCount < minSamples) {
+			return false;
+		}
+		double scale = Math.max(errorVariance, 1e-12);
+		return Math.sqrt(p[4] * scale) <= tolerance * Math.abs(theta[1])
+				&& Math.sqrt(p[8] * scale) <= tolerance * Math.abs(theta[2]);
+	}
+
+	/**
+	 * Creates a motion controller using the identified feed-forward gains and the provided
+	 * feed-back gains.  The static friction gain has no equivalent in the motion controller.
+	 *
+	 * @param kP - positional feed-back gain
+	 * @param kV - velocity feed-back gain
+	 * @param kI - integration feed-back gain
+	 * @param positionTolerance - positional tolerance
+	 * @return configured motion controller
+	 */
+	public MotionController createMotionController(double kP, double kV, double kI, double positionTolerance) {
+		return new MotionController(kP, kV, kI, getKv(), getKa(), positionTolerance);
+	}
+
+	/**
+	 * Creates a position/velocity plant model from the identified gains.
+	 *
+	 * @return plant model
+	 */
+	public LinearPlant createPlant() {
+		return LinearPlant.createPositionSystem(getKv(), getKa());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("kS %8.5f kV %8.5f kA %8.5f (%d samples)", getKs(), getKv(), getKa(), sampleCount);
+	}
+}
@@ -22,15 +22,11 @@ package org.tahomarobotics.robot.motion;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.tahomarobotics.robot.motion.MotionProfile.MotionProfileException;
+import org.tahomarobotics.robot.motion.MotionProfileFactory.Profile;
 import org.tahomarobotics.robot.path.PathSection;
 
 public class Motion2DProfileFactory {
 
-	private enum Profile {
-		Trapezoid, SCurve;
-	}
-
 	/**
 	 * Create a trapezoidal set of profiles for the provided Path constrained to the given acceleration.
 	 *
@@ -92,7 +88,7 @@ public class Motion2DProfileFactory {
 			double nextVelocity = (i+1) < sections.size() ? sections.get(i+1).maxVelocity : 0;
 			double endVelocity = i + 1 < sections.size() ? Math.min(maxVelocity, nextVelocity) : killDuringLasSection ?  startVelocity : Math.min(maxVelocity, nextVelocity);
 
-			MotionProfile motionProfile = createMotionProfile(profile, startTime,
+			MotionProfile motionProfile = MotionProfileFactory.createMotionProfile(profile, startTime,
 					startPosition, endPosition,
 					startVelocity, endVelocity,
 					maxVelocity, maxAccel, maxJerk);
@@ -145,7 +141,7 @@ public class Motion2DProfileFactory {
 			double nextRotationalVelocity = (i+1) < sections.size() ? sections.get(i+1).maxRotationalVelocity : 0;
 			double endRotationalVelocity = direction * Math.min(Math.abs(maxRotationalVelocity), Math.abs(nextRotationalVelocity));
 
-			MotionProfile rotMotionProfile = createMotionProfile(profile, startTime,
+			MotionProfile rotMotionProfile = MotionProfileFactory.createMotionProfile(profile, startTime,
 					startRotationalPosition, endRotationalPosition,
 					startRotationalVelocity, endRotationalVelocity,
 					maxRotationalVelocity, maxRotAccel, maxRotJerk);
@@ -159,24 +155,4 @@ public class Motion2DProfileFactory {
 		}
 
 	}
-
-	private static MotionProfile createMotionProfile(Profile profile,
-	                                                 double startTime, double startPosition, double endPosition,
-	                                                 double startVelocity, double endVelocity, double maxVelocity,
-	                                                 double maxAccel, double maxJerk) {
-		try {
-			switch(profile) {
-
-				case Trapezoid:
-					return new TrapezoidalMotionProfile(startTime, startPosition, endPosition,
-							startVelocity, endVelocity, maxVelocity, maxAccel);
-
-				case SCurve:
-
-			}
-		} catch (MotionProfileException e) {
-			e.printStackTrace();
-		}
-		return null;
-	}
 }
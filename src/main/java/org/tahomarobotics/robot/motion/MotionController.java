@@ -64,35 +64,21 @@ public class MotionController {
 	}
 
 	private double prevSign = 1;
-	public double updateVel(final double time, final MotionState currentState, final MotionState setpoint){
-		if (!Double.isNaN(prevTime)) {
-			if ((time - prevTime) > 0.100) {
-				reset();
-			}
-		}
-
-		double sign = Math.signum(setpoint.velocity - currentState.velocity);
-		if(sign != prevSign){
-			totalError = 0.;
-		}
-		prevSign = sign;
-		// Update error.
-		positionError = setpoint.velocity - currentState.velocity;
-		velocityError = setpoint.acceleration - currentState.acceleration;
-		totalError = Double.isNaN(prevTime) ? 0.0 : (totalError + positionError * (time - prevTime));
-		prevTime = time;
-		// Calculate the feed forward and proportional terms.
-		double output =
-				kffV * setpoint.velocity +
-						kffA * setpoint.acceleration +
-						kP * positionError +
-						kV * velocityError +
-						kI * totalError;
-
-		onTarget = Math.abs(positionError) <= positionTolerance;
-
-		return output;
 
+	/**
+	 * Controller update for velocity control.  The velocity is controlled with the velocity feed-back
+	 * gain (kP) and the acceleration with kV.
+	 *
+	 * @param time - elapsed time
+	 * @param currentState - current motion state for velocity and acceleration
+	 * @param setpoint - set-point for velocity and acceleration
+	 * @return calculated controller output
+	 */
+	public double updateVel(final double time, final MotionState currentState, final MotionState setpoint){
+		return update(time,
+				setpoint.velocity - currentState.velocity,
+				setpoint.acceleration - currentState.acceleration,
+				setpoint);
 	}
 
 	/**
@@ -105,20 +91,27 @@ public class MotionController {
 	 * @return calculated controller output
 	 */
 	public double update(final double time, final MotionState currentState, final MotionState setpoint) {
+		return update(time,
+				setpoint.position - currentState.position,
+				setpoint.velocity - currentState.velocity,
+				setpoint);
+	}
+
+	private double update(final double time, final double error, final double errorRate, final MotionState setpoint) {
 		if (!Double.isNaN(prevTime)) {
 			if ((time - prevTime) > 0.100) {
 				reset();
 			}
 		}
 
-		double sign = Math.signum(setpoint.position - currentState.position);
+		double sign = Math.signum(error);
 		if(sign != prevSign){
 			totalError = 0.;
 		}
 		prevSign = sign;
 		// Update error.
-		positionError = setpoint.position - currentState.position;
-		velocityError = setpoint.velocity - currentState.velocity;
+		positionError = error;
+		velocityError = errorRate;
 		totalError = Double.isNaN(prevTime) ? 0.0 : (totalError + positionError * (time - prevTime));
 		prevTime = time;
 		// Calculate the feed forward and proportional terms.
@@ -129,8 +122,6 @@ public class MotionController {
 						kV * velocityError +
 						kI * totalError;
 
-
-
 		onTarget = Math.abs(positionError) <= positionTolerance;
 
 		return output;
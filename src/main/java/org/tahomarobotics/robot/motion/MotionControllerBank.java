@@ -0,0 +1,240 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.motion;
+
+import java.util.Arrays;
+
+/**
+ * Motion Controller Bank holds the gains and state of a number of motion controllers (axes) in
+ * parallel primitive arrays and updates all of them in a single loop.  Each axis behaves exactly
+ * as a {@link MotionController}, either in position mode ({@link MotionController#update}) or in
+ * velocity mode ({@link MotionController#updateVel}).
+ * <p>
+ * The current states and set-points are passed as arrays indexed by axis, so an update creates no
+ * objects.
+ */
+public class MotionControllerBank {
+
+	// stale time which resets the integrator
+	private static final double RESET_TIME = 0.100;
+
+	private final int size;
+
+	private final double[] kP;
+	private final double[] kV;
+	private final double[] kI;
+	private final double[] kffV;
+	private final double[] kffA;
+	private final double[] positionTolerance;
+	private final boolean[] velocityMode;
+
+	private final double[] totalError;
+	private final double[] prevTime;
+	private final double[] prevSign;
+	private final double[] positionError;
+	private final double[] velocityError;
+	private final boolean[] onTarget;
+
+	/**
+	 * Creates a bank of controllers with all gains zero.
+	 *
+	 * @param size - number of axes
+	 */
+	public MotionControllerBank(int size) {
+		this.size = size;
+		kP = new double[size];
+		kV = new double[size];
+		kI = new double[size];
+		kffV = new double[size];
+		kffA = new double[size];
+		positionTolerance = new double[size];
+		velocityMode = new boolean[size];
+
+		totalError = new double[size];
+		prevTime = new double[size];
+		prevSign = new double[size];
+		positionError = new double[size];
+		velocityError = new double[size];
+		onTarget = new boolean[size];
+
+		// same initial state as a new MotionController
+		Arrays.fill(prevSign, 1);
+		Arrays.fill(onTarget, true);
+	}
+
+	/**
+	 * Sets the gains of an axis.
+	 *
+	 * @param axis - axis index
+	 * @param kP - positional feed-back gain
+	 * @param kV - velocity feed-back gain
+	 * @param kI - integration feed-back gain
+	 * @param kffV - velocity feed=forward gain
+	 * @param kffA - acceleration feed-forward gain
+	 * @param positionTolerance - positional tolerance
+	 */
+	public void setGains(int axis, double kP, double kV, double kI, double kffV, double kffA, double positionTolerance) {
+		this.kP[axis] = kP;
+		this.kV[axis] = kV;
+		this.kI[axis] = kI;
+		this.kffV[axis] = kffV;
+		this.kffA[axis] = kffA;
+		this.positionTolerance[axis] = positionTolerance;
+	}
+
+	/**
+	 * Copies the gains of an existing controller into an axis.
+	 *
+	 * @param axis - axis index
+	 * @param controller - controller providing the gains
+	 */
+	public void setGains(int axis, MotionController controller) {
+		setGains(axis, controller.kP, controller.kV, controller.kI, controller.kffV, controller.kffA,
+				controller.positionTolerance);
+	}
+
+	/**
+	 * Selects velocity mode (control velocity and acceleration) or position mode (control position
+	 * and velocity) for an axis.
+	 *
+	 * @param axis - axis index
+	 * @param velocityMode - true for velocity control
+	 */
+	public void setVelocityMode(int axis, boolean velocityMode) {
+		this.velocityMode[axis] = velocityMode;
+	}
+
+	/**
+	 * Clears out any previously held data of all axes
+	 */
+	public void reset() {
+		for (int i = 0; i < size; i++) {
+			reset(i);
+		}
+	}
+
+	/**
+	 * Clears out any previously held data of an axis
+	 *
+	 * @param axis - axis index
+	 */
+	public void reset(int axis) {
+		prevTime[axis] = Double.NaN;
+		totalError[axis] = 0;
+		onTarget[axis] = false;
+	}
+
+	/**
+	 * Updates all axes and calculates their outputs based on the current states and set-points.
+	 * Arrays are indexed by axis.  Acceleration arrays are only used by velocity mode axes.
+	 *
+	 * @param time - elapsed time
+	 * @param position - current positions
+	 * @param velocity - current velocities
+	 * @param acceleration - current accelerations
+	 * @param setpointPosition - set-point positions
+	 * @param setpointVelocity - set-point velocities
+	 * @param setpointAcceleration - set-point accelerations
+	 * @param output - calculated controller outputs
+	 */
+	public void update(final double time, final double[] position, final double[] velocity, final double[] acceleration,
+			final double[] setpointPosition, final double[] setpointVelocity, final double[] setpointAcceleration,
+			final double[] output) {
+
+		for (int i = 0; i < size; i++) {
+			double prev = prevTime[i];
+			double total = totalError[i];
+
+			// reset on stale time
+			if (time - prev > RESET_TIME) {
+				prev = Double.NaN;
+				total = 0;
+			}
+
+			boolean vel = velocityMode[i];
+			double error = vel ? setpointVelocity[i] - velocity[i] : setpointPosition[i] - position[i];
+			double errorRate = vel ? setpointAcceleration[i] - acceleration[i] : setpointVelocity[i] - velocity[i];
+
+			// reset integrator on sign change
+			double sign = Math.signum(error);
+			if (sign != prevSign[i]) {
+				total = 0.;
+			}
+			prevSign[i] = sign;
+
+			total = Double.isNaN(prev) ? 0.0 : (total + error * (time - prev));
+
+			positionError[i] = error;
+			velocityError[i] = errorRate;
+			totalError[i] = total;
+			prevTime[i] = time;
+
+			output[i] =
+					kffV[i] * setpointVelocity[i] +
+							kffA[i] * setpointAcceleration[i] +
+							kP[i] * error +
+							kV[i] * errorRate +
+							kI[i] * total;
+
+			onTarget[i] = Math.abs(error) <= positionTolerance[i];
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getPositionError(int axis) {
+		return positionError[axis];
+	}
+
+	/**
+	 * Indicates if the axis is within positional tolerance of its set-point
+	 *
+	 * @param axis - axis index
+	 * @return - true if within positional tolerance
+	 */
+	public boolean onTarget(int axis) {
+		return onTarget[axis];
+	}
+
+	/**
+	 * Indicates if all axes are within positional tolerance of their set-points
+	 *
+	 * @return - true if all axes are within positional tolerance
+	 */
+	public boolean allOnTarget() {
+		for (int i = 0; i < size; i++) {
+			if (!onTarget[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			sb.append(String.format("%7.2f,%7.2f,%7.2f", positionError[i], velocityError[i], totalError[i])).append('\n');
+		}
+		return sb.toString();
+	}
+}
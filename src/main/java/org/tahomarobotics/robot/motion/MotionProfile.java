@@ -21,8 +21,25 @@ package org.tahomarobotics.robot.motion;
 
 public abstract class MotionProfile {
 
+	/**
+	 * Result of building a profile.  Parameters are validated before the profile is solved.
+	 */
+	public enum Status {
+		OK("profile created"),
+		NonFinite("profile parameters must be finite"),
+		InvalidLimits("velocity, acceleration and jerk limits must be positive"),
+		VelocityExceedsLimit("start or end velocity exceeds the max velocity"),
+		UnsupportedVelocity("S-Curve profiles not defined for with non-zero velocity end points");
+
+		public final String message;
+
+		private Status(String message) {
+			this.message = message;
+		}
+	}
+
 	@SuppressWarnings("serial")
-	public class MotionProfileException extends Exception {
+	public static class MotionProfileException extends Exception {
 
 		public MotionProfileException(String message) {
 			super(message);
@@ -30,18 +47,56 @@ public abstract class MotionProfile {
 		
 	}
 	
+	// relative tolerance on end point velocities exceeding the max velocity
+	private static final double VELOCITY_TOLERANCE = 1e-9;
+	
 	private final MotionState phases[];
+	
+	private Status status = Status.OK;
 
-	protected final double startTime;
-	protected final double startPosition;
-	protected final double endPosition;
-	protected final double startVelocity;
-	protected final double endVelocity;
-	protected final double maxVelocity;
-	protected final double maxAcceleration;
-	protected final double maxJerk;
+	protected double startTime;
+	protected double startPosition;
+	protected double endPosition;
+	protected double startVelocity;
+	protected double endVelocity;
+	protected double maxVelocity;
+	protected double maxAcceleration;
+	protected double maxJerk;
 	
-	MotionProfile(double startTime, double startPosition, double endPosition, double startVelocity, double endVelocity, double maxVelocity, double maxAcceleration, double maxJerk) throws MotionProfileException {
+	/**
+	 * Creates a stationary profile which is built (and rebuilt) with set().
+	 * 
+	 * @param phaseCount - number of phase states used by the profile
+	 */
+	protected MotionProfile(int phaseCount) {
+		phases = new MotionState[phaseCount];
+		for (int i = 0; i < phaseCount; i++) {
+			phases[i] = new MotionState();
+		}
+	}
+	
+	MotionProfile(int phaseCount, double startTime, double startPosition, double endPosition, double startVelocity, double endVelocity, double maxVelocity, double maxAcceleration, double maxJerk) throws MotionProfileException {
+		this(phaseCount);
+		if (set(startTime, startPosition, endPosition, startVelocity, endVelocity, maxVelocity, maxAcceleration, maxJerk) != Status.OK) {
+			throw new MotionProfileException(status.message);
+		}
+	}
+	
+	/**
+	 * Validates the parameters and rebuilds the profile in place.  Nothing is allocated and no
+	 * exception is thrown; when validation fails the profile holds the start position.
+	 * 
+	 * @param startTime - time at the start of the profile (seconds)
+	 * @param startPosition - position at the start
+	 * @param endPosition - position at the end
+	 * @param startVelocity - velocity at the start
+	 * @param endVelocity - velocity at the end
+	 * @param maxVelocity - velocity limit
+	 * @param maxAcceleration - acceleration limit
+	 * @param maxJerk - jerk limit (not used in Trapezoid)
+	 * @return build status
+	 */
+	public Status set(double startTime, double startPosition, double endPosition, double startVelocity, double endVelocity, double maxVelocity, double maxAcceleration, double maxJerk) {
 		this.startTime = startTime;
 		this.startPosition = startPosition;
 		this.endPosition = endPosition;
@@ -51,15 +106,73 @@ public abstract class MotionProfile {
 		this.maxAcceleration = maxAcceleration;
 		this.maxJerk = maxJerk;
 		
-		phases = generatePhases();
+		status = validate();
+		if (status == Status.OK) {
+			generatePhases(phases);
+		} else {
+			for (MotionState phase : phases) {
+				phase.setTime(startTime).setPosition(startPosition).setVelocity(0).setAcceleration(0).setJerk(0);
+			}
+		}
+		return status;
+	}
+	
+	/**
+	 * Checks the profile parameters before solving.
+	 * 
+	 * @return OK if the profile can be generated
+	 */
+	protected Status validate() {
+		if (!Double.isFinite(startTime) || !Double.isFinite(startPosition) || !Double.isFinite(endPosition) ||
+				!Double.isFinite(startVelocity) || !Double.isFinite(endVelocity) ||
+				!Double.isFinite(maxVelocity) || !Double.isFinite(maxAcceleration) || !Double.isFinite(maxJerk)) {
+			return Status.NonFinite;
+		}
+		
+		// a zero velocity limit is only allowed when there is no distance to travel
+		if (maxAcceleration <= 0 || maxVelocity < 0 || (maxVelocity == 0 && endPosition != startPosition)) {
+			return Status.InvalidLimits;
+		}
+		
+		double limit = maxVelocity * (1 + VELOCITY_TOLERANCE);
+		if (Math.abs(startVelocity) > limit || Math.abs(endVelocity) > limit) {
+			return Status.VelocityExceedsLimit;
+		}
+		return Status.OK;
 	}
 	
-	protected abstract MotionState[] generatePhases() throws MotionProfileException;
+	/**
+	 * Fills in the phase states from the validated parameters.
+	 * 
+	 * @param phases - pre-allocated phase states to be updated
+	 */
+	protected abstract void generatePhases(MotionState phases[]);
+	
+	/**
+	 * Returns the result of the last build.
+	 * 
+	 * @return build status
+	 */
+	public Status getStatus() {
+		return status;
+	}
 	
 	protected MotionState getPhaseSetpoint(final double dt, final MotionState initial, MotionState setpoint) {
 		if (setpoint == null) {
 			setpoint = new MotionState();
 		}
+		return integrate(dt, initial, setpoint);
+	}
+	
+	/**
+	 * Integrates a constant jerk phase from the initial state for the given time.
+	 * 
+	 * @param dt - time from the initial state (seconds)
+	 * @param initial - state at the start of the phase
+	 * @param setpoint - state to be updated
+	 * @return setpoint
+	 */
+	static MotionState integrate(final double dt, final MotionState initial, final MotionState setpoint) {
 		double jt = initial.jerk * dt;
 		double jt2 = jt * dt / 2;
 		double jt3 = jt2 * dt / 3;
@@ -91,6 +204,27 @@ public abstract class MotionProfile {
 		return false;
 	}
 
+	/**
+	 * Returns the number of phase boundary states, the last being the end state.
+	 * 
+	 * @return number of phases
+	 */
+	public int getPhaseCount() {
+		return phases.length;
+	}
+	
+	/**
+	 * Copies the state at the start of a phase (constant jerk from this state to the next).
+	 * 
+	 * @param index - phase index
+	 * @param phase - state to be updated
+	 * @return phase
+	 */
+	public MotionState getPhase(int index, MotionState phase) {
+		phase.copy(phases[index]);
+		return phase;
+	}
+	
 	public double getEndTime() {
 		return phases[phases.length - 1].time;
 	}
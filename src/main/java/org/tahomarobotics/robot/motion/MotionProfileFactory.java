@@ -22,7 +22,8 @@ package org.tahomarobotics.robot.motion;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.tahomarobotics.robot.motion.MotionProfile.MotionProfileException;
+import org.tahomarobotics.robot.motion.MotionProfile.Status;
+import org.tahomarobotics.robot.path.Polyline;
 import org.tahomarobotics.robot.path.Waypoint;
 
 public class MotionProfileFactory {
@@ -69,10 +70,36 @@ public class MotionProfileFactory {
 		
 		return sections;
 	}
+
+	private static List<MotionSection> createMotionSections(Polyline polyline) {
+		List<MotionSection> sections = new ArrayList<>();
 	
-	public static List<MotionProfile> createMotionProfiles(List<Waypoint> waypoints, Profile profile, double maxAccel, double maxJerk) {
+		double len = 0;
+		double max = polyline.getSpeed(1);
+		
+		for (int i = 1; i < polyline.size(); i++) {
+			double speed = polyline.getSpeed(i);
+			if (max != speed) {
+				sections.add(new MotionSection(len, max));	
+				len = 0;
+			}
+			max = speed;
+			len += polyline.distance(i - 1, i);
+		}
+		sections.add(new MotionSection(len, max));
 		
-		List<MotionSection> sections = createMotionSections(waypoints);
+		return sections;
+	}
+	
+	public static List<MotionProfile> createMotionProfiles(List<Waypoint> waypoints, Profile profile, double maxAccel, double maxJerk) {
+		return createSectionProfiles(createMotionSections(waypoints), profile, maxAccel, maxJerk);
+	}
+
+	public static List<MotionProfile> createMotionProfiles(Polyline polyline, Profile profile, double maxAccel, double maxJerk) {
+		return createSectionProfiles(createMotionSections(polyline), profile, maxAccel, maxJerk);
+	}
+
+	private static List<MotionProfile> createSectionProfiles(List<MotionSection> sections, Profile profile, double maxAccel, double maxJerk) {
 		
 		List<MotionProfile> profiles = new ArrayList<>();
 		
@@ -103,24 +130,52 @@ public class MotionProfileFactory {
 		return profiles;
 	}
 	
+	/**
+	 * Creates a motion profile built from the provided parameters.
+	 * 
+	 * @param profile - Trapezoid or S-Curve
+	 * @param startTime - time at the start
+	 * @param startPosition - position at the start
+	 * @param endPosition - position at the end
+	 * @param startVelocity - velocity at the start
+	 * @param endVelocity - velocity at the end
+	 * @param maxVelocity - velocity limit
+	 * @param maxAccel - acceleration limit
+	 * @param maxJerk - jerk limit (not used in Trapezoid)
+	 * @return built motion profile
+	 * @throws IllegalArgumentException with the failed status message if the profile can not be built
+	 */
 	public static MotionProfile createMotionProfile(Profile profile, 
 			double startTime, double startPosition, double endPosition, 
 			double startVelocity, double endVelocity, double maxVelocity, 
 			double maxAccel, double maxJerk) {
-		try {
-			switch(profile) {
-			
-			case Trapezoid:
-				return new TrapezoidalMotionProfile(startTime, startPosition, endPosition, 
-						startVelocity, endVelocity, maxVelocity, maxAccel);
-			
-			case SCurve:
-				return new SCurveMotionProfile(startTime, startPosition, endPosition,
-						startVelocity, endVelocity, maxVelocity, maxAccel, maxJerk);
-			}
-		} catch (MotionProfileException e) {
-			e.printStackTrace();
+		
+		MotionProfile motionProfile = createMotionProfile(profile);
+		Status status = motionProfile.set(startTime, startPosition, endPosition, 
+				startVelocity, endVelocity, maxVelocity, maxAccel, maxJerk);
+		
+		if (status != Status.OK) {
+			throw new IllegalArgumentException(String.format("Motion profile not created: %s (%s)", status.message, motionProfile));
+		}
+		return motionProfile;
+	}
+	
+	/**
+	 * Creates a stationary profile of the given type which is built (and re-built) in place
+	 * with MotionProfile.set() returning a status instead of throwing.
+	 * 
+	 * @param profile - Trapezoid or S-Curve
+	 * @return re-usable motion profile
+	 */
+	public static MotionProfile createMotionProfile(Profile profile) {
+		switch(profile) {
+		
+		case SCurve:
+			return new SCurveMotionProfile();
+		
+		case Trapezoid:
+		default:
+			return new TrapezoidalMotionProfile();
 		}
-		return null;
 	}
 }
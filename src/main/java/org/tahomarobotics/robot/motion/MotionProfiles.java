@@ -19,6 +19,7 @@
  */
 package org.tahomarobotics.robot.motion;
 
+import java.util.Collections;
 import java.util.List;
 
 public class MotionProfiles {
@@ -53,6 +54,20 @@ public class MotionProfiles {
 		}
 	}
 	
+	/**
+	 * Creates profiles starting from the beginning which share the (unchanging) profiles of another,
+	 * so a cached set of profiles can be followed without re-calculating them.
+	 * 
+	 * @param other - profiles to share
+	 */
+	public MotionProfiles(final MotionProfiles other) {
+		this.fwdMotionProfiles = other.fwdMotionProfiles;
+		this.rotMotionProfiles = other.rotMotionProfiles;
+		this.totalDuration = other.totalDuration;
+		this.lastForwardSetpoint = other.lastForwardSetpoint;
+		this.lastRotationSetpoint = other.lastRotationSetpoint;
+	}
+	
 	/**
 	 * Resets the profile to start from the beginning.
 	 */
@@ -96,6 +111,33 @@ public class MotionProfiles {
 		return true;
 	}
 	
+	/**
+	 * Returns the forward profiles, followed in turn.
+	 * 
+	 * @return forward motion profiles
+	 */
+	public List<MotionProfile> getForwardProfiles() {
+		return Collections.unmodifiableList(fwdMotionProfiles);
+	}
+	
+	/**
+	 * Returns the rotational profiles, each followed with the forward profile of the same index.
+	 * 
+	 * @return rotational motion profiles or null
+	 */
+	public List<MotionProfile> getRotationalProfiles() {
+		return rotMotionProfiles == null ? null : Collections.unmodifiableList(rotMotionProfiles);
+	}
+	
+	/**
+	 * Indicates if rotational profiles were provided.
+	 * 
+	 * @return true if rotational set-points are available
+	 */
+	public boolean hasRotation() {
+		return rotMotionProfiles != null;
+	}
+	
 	/**
 	 * Returns the time duration of the motion profile in seconds.
 	 * 
@@ -0,0 +1,331 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.motion;
+
+import org.tahomarobotics.robot.motion.MotionProfile.Status;
+import org.tahomarobotics.robot.motion.MotionProfileFactory.Profile;
+
+/**
+ * Online Motion Profile is a re-plannable profile which starts from any current state (position,
+ * velocity and acceleration) rather than from rest.  When the goal changes mid-move the profile is
+ * rebuilt in place from the current set-point so the mechanism continues smoothly.  Re-planning is
+ * cheap enough to run every loop, does not allocate and does not throw; invalid parameters are
+ * reported with a status and leave the profile holding the current position.
+ * <p>
+ * Trapezoid profiles are solved in closed form (acceleration is assumed to change instantly).  S-Curve
+ * profiles are composed of two jerk limited velocity changes around an optional cruise, each solved in
+ * closed form, with a bounded bisection on the peak velocity when the cruise speed is not reached.
+ */
+public class OnlineMotionProfile {
+
+	private static final int MAX_PHASES = 8;
+	private static final int SEARCH_ITERATIONS = 60;
+
+	private final Profile profile;
+	private double maxVelocity;
+	private double maxAcceleration;
+	private double maxJerk;
+
+	// phase start states, the last being the end state
+	private final MotionState[] phases = new MotionState[MAX_PHASES];
+	private int count = 0;
+
+	// velocity change scratch: t1, j1, t2, t3, j3
+	private final double[] change = new double[5];
+	private final double[] displacement = new double[3];
+
+	/**
+	 * Creates a profile at rest at position zero.
+	 *
+	 * @param profile - Trapezoid or S-Curve
+	 * @param maxVelocity - velocity limit
+	 * @param maxAcceleration - acceleration limit
+	 * @param maxJerk - jerk limit (not used in Trapezoid)
+	 */
+	public OnlineMotionProfile(Profile profile, double maxVelocity, double maxAcceleration, double maxJerk) {
+		this.profile = profile;
+		for (int i = 0; i < MAX_PHASES; i++) {
+			phases[i] = new MotionState();
+		}
+		setLimits(maxVelocity, maxAcceleration, maxJerk);
+		hold(0, 0);
+	}
+
+	/**
+	 * Changes the limits used by the next re-plan.
+	 *
+	 * @param maxVelocity - velocity limit
+	 * @param maxAcceleration - acceleration limit
+	 * @param maxJerk - jerk limit (not used in Trapezoid)
+	 */
+	public void setLimits(double maxVelocity, double maxAcceleration, double maxJerk) {
+		this.maxVelocity = Math.abs(maxVelocity);
+		this.maxAcceleration = Math.abs(maxAcceleration);
+		this.maxJerk = Math.abs(maxJerk);
+	}
+
+	/**
+	 * Re-plans from the current set-point to a goal position where the mechanism stops.
+	 *
+	 * @param current - current state, including time
+	 * @param goalPosition - position to stop at
+	 * @return build status, the profile holds the current position unless OK
+	 */
+	public Status replan(MotionState current, double goalPosition) {
+		return replan(current.time, current.position, current.velocity, current.acceleration, goalPosition, 0);
+	}
+
+	/**
+	 * Re-plans from the given state to the goal position and velocity.
+	 *
+	 * @param time - current time (seconds)
+	 * @param position - current position
+	 * @param velocity - current velocity
+	 * @param acceleration - current acceleration (ignored in Trapezoid)
+	 * @param goalPosition - position at the end of the profile
+	 * @param goalVelocity - velocity at the end of the profile (limited to the max velocity)
+	 * @return build status, the profile holds the current position unless OK
+	 */
+	public Status replan(double time, double position, double velocity, double acceleration,
+			double goalPosition, double goalVelocity) {
+
+		if (!Double.isFinite(time) || !Double.isFinite(position) || !Double.isFinite(velocity) || !Double.isFinite(acceleration)
+				|| !Double.isFinite(goalPosition) || !Double.isFinite(goalVelocity)
+				|| !Double.isFinite(maxVelocity) || !Double.isFinite(maxAcceleration) || !Double.isFinite(maxJerk)) {
+			hold(time, position);
+			return Status.NonFinite;
+		}
+		if (maxVelocity <= 0 || maxAcceleration <= 0 || (profile == Profile.SCurve && maxJerk <= 0)) {
+			hold(time, position);
+			return Status.InvalidLimits;
+		}
+
+		goalVelocity = Math.max(-maxVelocity, Math.min(maxVelocity, goalVelocity));
+
+		if (profile == Profile.SCurve) {
+			planSCurve(time, position, velocity, acceleration, goalPosition, goalVelocity);
+		} else {
+			planTrapezoid(time, position, velocity, goalPosition, goalVelocity);
+		}
+		return Status.OK;
+	}
+
+	/**
+	 * Generate a set-point at the given time.
+	 *
+	 * @param time - time (seconds) for the set-point
+	 * @param setpoint - set-point to be updated
+	 * @return true while the profile is active, false once complete
+	 */
+	public boolean getSetpoint(final double time, final MotionState setpoint) {
+		for (int i = 1; i < count; i++) {
+			if (time < phases[i].time) {
+				MotionProfile.integrate(time - phases[i - 1].time, phases[i - 1], setpoint);
+				return true;
+			}
+		}
+		setpoint.copy(phases[count - 1]);
+		return false;
+	}
+
+	public double getStartTime() {
+		return phases[0].time;
+	}
+
+	public double getEndTime() {
+		return phases[count - 1].time;
+	}
+
+	public double getEndPosition() {
+		return phases[count - 1].position;
+	}
+
+	public MotionState getLastMotionState() {
+		return phases[count - 1];
+	}
+
+	/**
+	 * Trapezoid: accelerate (or decelerate) to the peak velocity, cruise, then change to the goal velocity.
+	 */
+	private void planTrapezoid(double time, double position, double velocity, double goalPosition, double goalVelocity) {
+		final double a = maxAcceleration;
+		final double distance = goalPosition - position;
+
+		// displacement when changing directly to the goal velocity decides the direction of the peak
+		double direct = (goalVelocity + velocity) * Math.abs(goalVelocity - velocity) / (2 * a);
+		double sign = distance >= direct ? 1 : -1;
+
+		double u0 = sign * velocity;
+		double ug = sign * goalVelocity;
+		double peak = Math.sqrt(Math.max(0, a * sign * distance + (u0 * u0 + ug * ug) / 2));
+		peak = Math.min(peak, maxVelocity);
+
+		double t1 = Math.abs(peak - u0) / a;
+		double t3 = Math.abs(peak - ug) / a;
+		double d1 = (u0 + peak) / 2 * t1;
+		double d3 = (peak + ug) / 2 * t3;
+		double t2 = peak > 0 ? Math.max(0, (sign * distance - d1 - d3) / peak) : 0;
+
+		MotionState state = start(time, position, velocity, 0, 0);
+		state.acceleration = sign * Math.signum(peak - u0) * a;
+		state = append(t1);
+		state.velocity = sign * peak;
+		state.acceleration = 0;
+		state = append(t2);
+		state.acceleration = sign * Math.signum(ug - peak) * a;
+		state = append(t3);
+		finish(state, goalPosition, goalVelocity);
+	}
+
+	/**
+	 * S-Curve: jerk limited change to the peak velocity, cruise, then jerk limited change to the goal velocity.
+	 */
+	private void planSCurve(double time, double position, double velocity, double acceleration,
+			double goalPosition, double goalVelocity) {
+
+		acceleration = Math.max(-maxAcceleration, Math.min(maxAcceleration, acceleration));
+		final double distance = goalPosition - position;
+
+		double peak;
+		double cruise = 0;
+
+		double upper = travel(velocity, acceleration, maxVelocity, goalVelocity);
+		double lower = travel(velocity, acceleration, -maxVelocity, goalVelocity);
+		if (distance >= upper) {
+			peak = maxVelocity;
+			cruise = (distance - upper) / maxVelocity;
+		} else if (distance <= lower) {
+			peak = -maxVelocity;
+			cruise = (lower - distance) / maxVelocity;
+		} else {
+			// displacement grows with the peak velocity
+			double lo = -maxVelocity;
+			double hi = maxVelocity;
+			for (int i = 0; i < SEARCH_ITERATIONS && hi - lo > 1e-9 * maxVelocity; i++) {
+				double mid = (lo + hi) / 2;
+				if (travel(velocity, acceleration, mid, goalVelocity) < distance) {
+					lo = mid;
+				} else {
+					hi = mid;
+				}
+			}
+			peak = (lo + hi) / 2;
+		}
+
+		MotionState state = start(time, position, velocity, acceleration, 0);
+		state = appendChange(state, velocity, acceleration, peak);
+		state.velocity = peak;
+		state.acceleration = 0;
+		state.jerk = 0;
+		state = append(cruise);
+		state = appendChange(state, peak, 0, goalVelocity);
+		finish(state, goalPosition, goalVelocity);
+	}
+
+	/**
+	 * Displacement of changing to the peak velocity and then to the goal velocity with no cruise.
+	 */
+	private double travel(double velocity, double acceleration, double peak, double goalVelocity) {
+		return changeDisplacement(velocity, acceleration, peak) + changeDisplacement(peak, 0, goalVelocity);
+	}
+
+	/**
+	 * Computes the jerk limited, time optimal change from (v0, a0) to (v1, 0) into the change array:
+	 * ramp the acceleration to the peak, hold, ramp it back to zero.
+	 */
+	private void computeChange(double v0, double a0, double v1) {
+		final double j = maxJerk;
+
+		// velocity reached by ramping the acceleration to zero now
+		double stop = v0 + a0 * Math.abs(a0) / (2 * j);
+		double sign = v1 >= stop ? 1 : -1;
+
+		double a = sign * a0;
+		double delta = sign * (v1 - v0);
+		double peak = Math.min(maxAcceleration, Math.sqrt(Math.max(0, j * delta + a * a / 2)));
+
+		double t1 = (peak - a) / j;
+		change[1] = t1 >= 0 ? sign * j : -sign * j;
+		t1 = Math.abs(t1);
+		double t3 = peak / j;
+		double dv1 = (a + peak) / 2 * t1;
+		double dv3 = peak * peak / (2 * j);
+
+		change[0] = t1;
+		change[2] = peak > 0 ? Math.max(0, (delta - dv1 - dv3) / peak) : 0;
+		change[3] = t3;
+		change[4] = -sign * j;
+	}
+
+	private double changeDisplacement(double v0, double a0, double v1) {
+		computeChange(v0, a0, v1);
+		displacement[0] = 0;
+		displacement[1] = v0;
+		displacement[2] = a0;
+		integrate(change[0], change[1]);
+		integrate(change[2], 0);
+		integrate(change[3], change[4]);
+		return displacement[0];
+	}
+
+	private void integrate(double dt, double jerk) {
+		double a = displacement[2];
+		double v = displacement[1];
+		displacement[0] += v * dt + a * dt * dt / 2 + jerk * dt * dt * dt / 6;
+		displacement[1] = v + a * dt + jerk * dt * dt / 2;
+		displacement[2] = a + jerk * dt;
+	}
+
+	private MotionState appendChange(MotionState state, double v0, double a0, double v1) {
+		computeChange(v0, a0, v1);
+		double t2 = change[2];
+		double t3 = change[3];
+		double j3 = change[4];
+		state.jerk = change[1];
+		state = append(change[0]);
+		state.jerk = 0;
+		state = append(t2);
+		state.jerk = j3;
+		state = append(t3);
+		state.acceleration = 0;
+		state.jerk = 0;
+		return state;
+	}
+
+	private MotionState start(double time, double position, double velocity, double acceleration, double jerk) {
+		count = 1;
+		return phases[0].setTime(time).setPosition(position).setVelocity(velocity).setAcceleration(acceleration).setJerk(jerk);
+	}
+
+	private MotionState append(double dt) {
+		MotionState next = phases[count];
+		MotionProfile.integrate(dt, phases[count - 1], next);
+		count++;
+		return next;
+	}
+
+	private void finish(MotionState end, double position, double velocity) {
+		end.setPosition(position).setVelocity(velocity).setAcceleration(0).setJerk(0);
+	}
+
+	private void hold(double time, double position) {
+		start(time, position, 0, 0, 0);
+	}
+}
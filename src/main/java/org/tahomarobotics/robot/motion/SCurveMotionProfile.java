@@ -2,22 +2,51 @@ package org.tahomarobotics.robot.motion;
 
 public class SCurveMotionProfile extends MotionProfile {
 
+    private static final int PHASE_COUNT = 8;
+
+    /**
+     * Creates a stationary profile to be built with set().
+     */
+    public SCurveMotionProfile() {
+        super(PHASE_COUNT);
+    }
+
     public SCurveMotionProfile(double startTime, double startPosition, double endPosition, double startVelocity, double endVelocity, double maxVelocity, double maxAcceleration, double maxJerk) throws MotionProfileException {
-        super(startTime, startPosition, endPosition, startVelocity, endVelocity, maxVelocity, maxAcceleration, maxJerk);
+        super(PHASE_COUNT, startTime, startPosition, endPosition, startVelocity, endVelocity, maxVelocity, maxAcceleration, maxJerk);
     }
 
     @Override
-    protected MotionState[] generatePhases() throws MotionProfileException {
+    protected Status validate() {
+        Status status = super.validate();
+        if (status != Status.OK) {
+            return status;
+        }
+        if (maxJerk <= 0) {
+            return Status.InvalidLimits;
+        }
 
         // TODO: what about start and end velocities?
         if (startVelocity != 0 || endVelocity != 0) {
-            throw new MotionProfileException("S-Curve profiles not defined for with non-zero velocity end points");
+            return Status.UnsupportedVelocity;
         }
+        return Status.OK;
+    }
+
+    @Override
+    protected void generatePhases(MotionState phases[]) {
 
         final double distance = endPosition - startPosition;
         final double abs_distance = Math.abs(distance);
         final double direction = Math.signum(distance);
 
+        // nothing to travel, hold the start position
+        if (abs_distance == 0) {
+            for (MotionState phase : phases) {
+                phase.setTime(startTime).setPosition(startPosition).setVelocity(0).setAcceleration(0).setJerk(0);
+            }
+            return;
+        }
+
         // shortest run where max acceleration is not reached (no constant acceleration)
         final double adjustedMaxAcceleration = Math.min(
                 maxAcceleration,
@@ -41,49 +70,47 @@ public class SCurveMotionProfile extends MotionProfile {
         // position ramp time or velocity time or total time
         final double tv = abs_distance / adjustedMaxVelocity - ta - tj - tj;
 
-        MotionState phases[] = new MotionState[8];
-
         // ramping to max acceleration
-        phases[0] = new MotionState()
+        phases[0]
                 .setTime(startTime)
                 .setPosition(startPosition)
+                .setVelocity(0)
+                .setAcceleration(0)
                 .setJerk(maxJerk * direction);
 
         // start of constant max acceleration
-        phases[1] = getPhaseSetpoint(tj, phases[0], new MotionState())
+        getPhaseSetpoint(tj, phases[0], phases[1])
                 .setAcceleration(adjustedMaxAcceleration * direction)
                 .setJerk(0);
 
         // ramp acceleration to zero
-        phases[2] = getPhaseSetpoint(ta, phases[1], new MotionState())
+        getPhaseSetpoint(ta, phases[1], phases[2])
                 .setJerk(-maxJerk * direction);
 
         // constant velocity
-        phases[3] = getPhaseSetpoint(tj, phases[2], new MotionState())
+        getPhaseSetpoint(tj, phases[2], phases[3])
                 .setVelocity(adjustedMaxVelocity * direction)
                 .setAcceleration(0)
                 .setJerk(0);
 
         // ramping to max reverse acceleration
-        phases[4] = getPhaseSetpoint(tv, phases[3], new MotionState())
+        getPhaseSetpoint(tv, phases[3], phases[4])
                 .setJerk(-maxJerk * direction);
 
         // start of constant max reverse acceleration
-        phases[5] = getPhaseSetpoint(tj, phases[4], new MotionState())
+        getPhaseSetpoint(tj, phases[4], phases[5])
                 .setAcceleration(-adjustedMaxAcceleration * direction)
                 .setJerk(0);
 
         // ramp reverse acceleration to zero
-        phases[6] = getPhaseSetpoint(ta, phases[5], new MotionState())
+        getPhaseSetpoint(ta, phases[5], phases[6])
                 .setJerk(maxJerk * direction);
 
         // final
-        phases[7] = getPhaseSetpoint(tj, phases[6], new MotionState())
+        getPhaseSetpoint(tj, phases[6], phases[7])
                 .setPosition(endPosition)
                 .setVelocity(0)
                 .setAcceleration(0)
                 .setJerk(0);
-
-        return phases;
     }
 }
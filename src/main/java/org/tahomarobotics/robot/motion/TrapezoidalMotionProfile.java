@@ -21,12 +21,30 @@ package org.tahomarobotics.robot.motion;
 
 public class TrapezoidalMotionProfile extends MotionProfile {
 
+	private static final int PHASE_COUNT = 4;
+
+	/**
+	 * Creates a stationary profile to be built with set().
+	 */
+	public TrapezoidalMotionProfile() {
+		super(PHASE_COUNT);
+	}
+
 	public TrapezoidalMotionProfile(double startTime, double startPosition, double endPosition, double startVelocity, double endVelocity, double maxVelocity, double maxAcceleration) throws MotionProfileException {
-		super(startTime, startPosition, endPosition, startVelocity, endVelocity, maxVelocity, maxAcceleration, 0);
+		super(PHASE_COUNT, startTime, startPosition, endPosition, startVelocity, endVelocity, maxVelocity, maxAcceleration, 0);
+	}
+
+	/**
+	 * Validates the parameters and rebuilds the profile in place.
+	 *
+	 * @return build status
+	 */
+	public Status set(double startTime, double startPosition, double endPosition, double startVelocity, double endVelocity, double maxVelocity, double maxAcceleration) {
+		return set(startTime, startPosition, endPosition, startVelocity, endVelocity, maxVelocity, maxAcceleration, 0);
 	}
 
 	@Override
-	protected MotionState[] generatePhases() throws MotionProfileException {
+	protected void generatePhases(MotionState phases[]) {
 		
 		final double distance = endPosition - startPosition;
 		final double abs_distance = Math.abs(distance);
@@ -46,30 +64,27 @@ public class TrapezoidalMotionProfile extends MotionProfile {
 		double max_acceleration = direction * maxAcceleration;
 		max_velocity *= direction;
 		
-		MotionState phases[] = new MotionState[4];
-
 		// initial state
-		MotionState initial = phases[0] = new MotionState()
+		MotionState initial = phases[0]
 				.setTime(startTime)
 				.setPosition(startPosition)
 				.setVelocity(startVelocity)
-				.setAcceleration(max_acceleration);
+				.setAcceleration(max_acceleration)
+				.setJerk(0);
 		
 		// end of constant acceleration
-		initial = phases[1] = getPhaseSetpoint(ta, initial, new MotionState())
+		initial = getPhaseSetpoint(ta, initial, phases[1])
 				.setVelocity(max_velocity)
 				.setAcceleration(0);
 		
 		// end of constant velocity
-		initial = phases[2] = getPhaseSetpoint(tv, initial, new MotionState())
+		initial = getPhaseSetpoint(tv, initial, phases[2])
 				.setAcceleration(-max_acceleration);
 
 		// end of constant deceleration
-		initial = phases[3] = getPhaseSetpoint(td, initial, new MotionState())
+		getPhaseSetpoint(td, initial, phases[3])
 				.setVelocity(endVelocity)
 				.setPosition(endPosition)
 				.setAcceleration(0);
-
-		return phases;
 	}
 }
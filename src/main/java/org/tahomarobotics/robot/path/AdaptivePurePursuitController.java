@@ -27,6 +27,7 @@ import java.util.ListIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.util.MathUtil;
 
 
 /**
@@ -35,6 +36,9 @@ import org.tahomarobotics.robot.state.Pose2D;
  * Using the current robot position, the closest point on the path to the robot is determined.  This value is
  * then used to calculate and cross track error and a new look ahead point placed the a distance in advance of
  * the current location.  The distance is a constant with the error added to it.
+ * <p>
+ * The path is either a poly-line (of way-points or a Polyline) or the lines, arcs and splines of path sections.  Arcs
+ * are followed directly, with the closest point and the look ahead point calculated on the circle.
  */
 public class AdaptivePurePursuitController implements PathController {
 
@@ -46,6 +50,8 @@ public class AdaptivePurePursuitController implements PathController {
 	private double remainingDistance;
 	private final double totalDistance;
 	private final double[] lookaheadData = new double[6];
+	private LatencyCompensator latencyCompensator = null;
+	private final Pose2D predictedPose = new Pose2D();
 
 
 	/**
@@ -55,7 +61,36 @@ public class AdaptivePurePursuitController implements PathController {
 	 * @param lookAheadDistance - look ahead distance used to tune the gain of the controller
 	 */
 	public AdaptivePurePursuitController(final List<Waypoint> waypoints, final double lookAheadDistance) {
-		this.path = new Path(waypoints);
+		this(new Path(waypoints, null), lookAheadDistance);
+	}
+
+	/**
+	 * Constructs the path following controller for a poly-line.
+	 *
+	 * @param polyline - points that make up the path
+	 * @param lookAheadDistance - look ahead distance used to tune the gain of the controller
+	 */
+	public AdaptivePurePursuitController(final Polyline polyline, final double lookAheadDistance) {
+		this(new Path(polyline), lookAheadDistance);
+	}
+
+	/**
+	 * Constructs the path following controller for the lines and arcs of the path sections.
+	 *
+	 * @param sections - path sections that make up the path
+	 * @param lookAheadDistance - look ahead distance used to tune the gain of the controller
+	 * @return path following controller
+	 * @throws IllegalArgumentException if there are no path sections
+	 */
+	public static AdaptivePurePursuitController createFromSections(final List<PathSection> sections, final double lookAheadDistance) {
+		if (sections.isEmpty()) {
+			throw new IllegalArgumentException("at least one path section required");
+		}
+		return new AdaptivePurePursuitController(new Path(null, sections), lookAheadDistance);
+	}
+
+	private AdaptivePurePursuitController(final Path path, final double lookAheadDistance) {
+		this.path = path;
 		this.lookAheadDistance = lookAheadDistance;
 
 		path.start(new CompletionListener() {
@@ -97,13 +132,30 @@ public class AdaptivePurePursuitController implements PathController {
 		return totalDistance - remainingDistance;
 	}
 
+	/**
+	 * Sets an optional compensator which advances the measured pose over the loop latency
+	 * before it is used.  Passing null disables compensation.
+	 *
+	 * @param latencyCompensator - latency predictor or null
+	 */
+	public void setLatencyCompensator(LatencyCompensator latencyCompensator) {
+		this.latencyCompensator = latencyCompensator;
+	}
+
 	/**
 	 * Using the current position, progress the current path segment and
 	 * calculate the cross track error.  Command the vehicle to join the
 	 * path at the look ahead point (look ahead distance and errors added).
 	 */
 	@Override
-	public double update(final Pose2D pose) {
+	public double update(final Pose2D measuredPose) {
+
+		// predict the current pose from the delayed measurement
+		Pose2D pose = measuredPose;
+		if (latencyCompensator != null) {
+			latencyCompensator.predict(measuredPose, predictedPose);
+			pose = predictedPose;
+		}
 
 		// update path segment with the current position
 		double pathError = path.update(pose);
@@ -120,11 +172,13 @@ public class AdaptivePurePursuitController implements PathController {
 		// create curve to join path at the look ahead point
 		double curvature = getJoinCurvature(pose, lookAheadPoint);
 
-		Waypoint closest = path.getClosestPoint();
-		LOGGER.debug(String.format("Cmd: %7.3f Robot: %7.3f %7.3f %7.3f Path: %7.3f %7.3f Remaining: %7.3f Lookahead Point %7.3f %7.3f",
-				curvature, pose.x, pose.y, pose.heading,
-				closest.x, closest.y, remainingDistance,
-				lookAheadPoint.x, lookAheadPoint.y));
+		if (LOGGER.isDebugEnabled()) {
+			Waypoint closest = path.getClosestPoint();
+			LOGGER.debug(String.format("Cmd: %7.3f Robot: %7.3f %7.3f %7.3f Path: %7.3f %7.3f Remaining: %7.3f Lookahead Point %7.3f %7.3f",
+					curvature, pose.x, pose.y, pose.heading,
+					closest.x, closest.y, remainingDistance,
+					lookAheadPoint.x, lookAheadPoint.y));
+		}
 
 		lookaheadData[0] = pose.x;
 		lookaheadData[0] = pose.y;
@@ -159,14 +213,25 @@ public class AdaptivePurePursuitController implements PathController {
 	}
 
 
-	private class Path {
+	private static class Path {
 
 		private final LinkedList<Segment> segments = new LinkedList<>();
 		private final List<Waypoint> waypoints;
+		private final List<PathSection> sections;
+		private final Polyline polyline;
 		private final Waypoint closestPoint = new Waypoint();
+		private final Waypoint lookAheadPoint = new Waypoint();
 
-		public Path(List<Waypoint> waypoints) {
+		public Path(List<Waypoint> waypoints, List<PathSection> sections) {
 			this.waypoints = waypoints;
+			this.sections = sections;
+			this.polyline = null;
+		}
+
+		public Path(Polyline polyline) {
+			this.waypoints = null;
+			this.sections = null;
+			this.polyline = polyline;
 		}
 
 		private List<Waypoint> getWaypoints() {
@@ -174,7 +239,30 @@ public class AdaptivePurePursuitController implements PathController {
 		}
 
 		private void start(CompletionListener listener) {
-			start(listener, getWaypoints());
+			if (polyline != null) {
+				start(listener, polyline);
+				return;
+			}
+			if (sections == null) {
+				start(listener, getWaypoints());
+				return;
+			}
+
+			segments.clear();
+
+			// lines and arcs directly from the path sections
+			Waypoint end = null;
+			for (PathSection section : sections) {
+				end = new Waypoint(section.endPose, section.maxVelocity);
+				if (section.isLine()) {
+					segments.add(new LineSegment(new Waypoint(section.startPose, section.maxVelocity), end));
+				} else if (section.isArc()) {
+					segments.add(new ArcSegment(section, end));
+				} else {
+					segments.add(new CurveSegment(section, end));
+				}
+			}
+			end.addCompletionListener(listener);
 		}
 
 		private void start(CompletionListener listener, List<Waypoint> waypoints) {
@@ -185,7 +273,7 @@ public class AdaptivePurePursuitController implements PathController {
 			Waypoint prev = null;
 			for (Waypoint next : waypoints) {
 				if (prev != null) {
-					segments.add(new Segment(prev, next));
+					segments.add(new LineSegment(prev, next));
 //					logger.log(Level.INFO, prev.toString());
 				}
 				prev = next;
@@ -194,6 +282,17 @@ public class AdaptivePurePursuitController implements PathController {
 			prev.addCompletionListener(listener);
 		}
 
+		private void start(CompletionListener listener, Polyline polyline) {
+
+			segments.clear();
+
+			// segments refer to the poly-line points by index
+			int last = polyline.size() - 1;
+			for (int i = 1; i <= last; i++) {
+				segments.add(new PolylineSegment(polyline, i, i == last ? listener : null));
+			}
+		}
+
 		/**
 		 * Calculate a new look ahead waypoint which is on the path positioned the
 		 * provided distance from the current location.
@@ -222,7 +321,12 @@ public class AdaptivePurePursuitController implements PathController {
 			}
 
 			// return look ahead point
-			return segment == null ? new Waypoint() : segment.getPoint(lookAheadDistance);
+			if (segment == null) {
+				lookAheadPoint.x = lookAheadPoint.y = 0;
+			} else {
+				segment.getPoint(segment.progress + lookAheadDistance / segment.length, lookAheadPoint);
+			}
+			return lookAheadPoint;
 		}
 
 		/**
@@ -274,43 +378,47 @@ public class AdaptivePurePursuitController implements PathController {
 
 	}
 
-	private class Segment {
+	private static abstract class Segment {
 
-		private final Waypoint start;
-		private final Waypoint end;
+		protected final Waypoint end;
+		protected final double length;
 
-		private double progress = 0;
-		//private boolean first = true;
+		protected double progress = 0;
 		private boolean complete = false;
-		private final double dx;
-		private final double dy;
-		private final double lengthSquared;
-		private final double length;
 		private final Waypoint closest = new Waypoint();
 		private double pathError = 0;
 
-		private Segment(Waypoint start, Waypoint end) {
-			this.start = start;
+		private Segment(Waypoint end, double length) {
 			this.end = end;
-			dx = end.x - start.x;
-			dy = end.y - start.y;
-			lengthSquared = dx * dx + dy * dy;
-			length = Math.sqrt(lengthSquared);
+			this.length = length;
 		}
 
+		/**
+		 * Notifies the listeners of the segment end.
+		 */
+		protected void fireCaptureEvent() {
+			end.fireCaptureEvent();
+		}
+
+		/**
+		 * Returns the progress (portion of the segment) of the closest location to the position.
+		 */
+		protected abstract double calculateProgress(Pose2D currentPosition);
+
+		/**
+		 * Calculates the point at the portion of the segment, extending past the end along its tangent.
+		 */
+		protected abstract void getPoint(double portion, Waypoint point);
+
 		private Waypoint update(Pose2D currentPosition) {
 
 			// determine closest path location
-			double dx = currentPosition.x - start.x;
-			double dy = currentPosition.y - start.y;
-
-			double calculatedProgress = (this.dx * dx + this.dy * dy) / lengthSquared;
+			double calculatedProgress = calculateProgress(currentPosition);
 
 			progress = calculatedProgress;
 
 			calculatedProgress = Math.max(0.0, calculatedProgress);
-			closest.x = start.x + calculatedProgress * this.dx;
-			closest.y = start.y + calculatedProgress * this.dy;
+			getPoint(calculatedProgress, closest);
 
 			// determine distance to path
 			double xerror = closest.x - currentPosition.x;
@@ -320,7 +428,7 @@ public class AdaptivePurePursuitController implements PathController {
 			// check for waypoint capture/completion
 			if (calculatedProgress >= 1.0) {
 				complete = true;
-				end.fireCaptureEvent();
+				fireCaptureEvent();
 			}
 			return closest;
 		}
@@ -336,15 +444,150 @@ public class AdaptivePurePursuitController implements PathController {
 		private double getRemainingLength() {
 			return (1.0 - progress) * length;
 		}
+	}
+
+	private static class LineSegment extends Segment {
+
+		private final Waypoint start;
+		private final double dx;
+		private final double dy;
+		private final double lengthSquared;
+
+		private LineSegment(Waypoint start, Waypoint end) {
+			super(end, start.distance(end));
+			this.start = start;
+			dx = end.x - start.x;
+			dy = end.y - start.y;
+			lengthSquared = dx * dx + dy * dy;
+		}
+
+		@Override
+		protected double calculateProgress(Pose2D currentPosition) {
+			double dx = currentPosition.x - start.x;
+			double dy = currentPosition.y - start.y;
+			return (this.dx * dx + this.dy * dy) / lengthSquared;
+		}
+
+		@Override
+		protected void getPoint(double portion, Waypoint point) {
+			point.x = start.x + portion * this.dx;
+			point.y = start.y + portion * this.dy;
+		}
+	}
+
+	private static class PolylineSegment extends Segment {
+
+		private final Polyline polyline;
+		private final int index;
+		private final CompletionListener listener;
+		private final double startX;
+		private final double startY;
+		private final double dx;
+		private final double dy;
+		private final double lengthSquared;
+
+		private PolylineSegment(Polyline polyline, int index, CompletionListener listener) {
+			super(null, polyline.distance(index - 1, index));
+			this.polyline = polyline;
+			this.index = index;
+			this.listener = listener;
+			startX = polyline.getX(index - 1);
+			startY = polyline.getY(index - 1);
+			dx = polyline.getX(index) - startX;
+			dy = polyline.getY(index) - startY;
+			lengthSquared = dx * dx + dy * dy;
+		}
 
-		private Waypoint getPoint(double distance) {
-			double portion = progress + distance / length;
+		@Override
+		protected void fireCaptureEvent() {
+			polyline.fireCaptureEvent(index);
+			if (listener != null) {
+				listener.onCompletion();
+			}
+		}
+
+		@Override
+		protected double calculateProgress(Pose2D currentPosition) {
+			double dx = currentPosition.x - startX;
+			double dy = currentPosition.y - startY;
+			return (this.dx * dx + this.dy * dy) / lengthSquared;
+		}
+
+		@Override
+		protected void getPoint(double portion, Waypoint point) {
+			point.x = startX + portion * this.dx;
+			point.y = startY + portion * this.dy;
+		}
+	}
 
-			Waypoint pt = new Waypoint();
-			pt.x = start.x + portion * this.dx;
-			pt.y = start.y + portion * this.dy;
+	private static class ArcSegment extends Segment {
+
+		private final double centerX;
+		private final double centerY;
+		private final double radius;
+		private final double sign;
+		private final double startAngle;
+		private final double sweep;
+		private final double endHeading;
+
+		private ArcSegment(PathSection section, Waypoint end) {
+			super(end, section.length);
+			double heading = Math.toRadians(section.startPose.heading);
+			sign = Math.signum(section.angle);
+			radius = section.radius;
+			centerX = section.startPose.x - sign * radius * Math.sin(heading);
+			centerY = section.startPose.y + sign * radius * Math.cos(heading);
+			startAngle = Math.atan2(section.startPose.y - centerY, section.startPose.x - centerX);
+			sweep = section.length / radius;
+			endHeading = heading + sign * sweep;
+		}
+
+		@Override
+		protected double calculateProgress(Pose2D currentPosition) {
+			// angle turned about the center, centered on the middle of the arc
+			double angle = Math.atan2(currentPosition.y - centerY, currentPosition.x - centerX);
+			double turned = MathUtil.normalizeAngle(sign * (angle - startAngle), sweep / 2);
+			return turned / sweep;
+		}
+
+		@Override
+		protected void getPoint(double portion, Waypoint point) {
+			if (portion <= 1.0) {
+				double angle = startAngle + sign * portion * sweep;
+				point.x = centerX + radius * Math.cos(angle);
+				point.y = centerY + radius * Math.sin(angle);
+			} else {
+				double angle = startAngle + sign * sweep;
+				double beyond = (portion - 1.0) * length;
+				point.x = centerX + radius * Math.cos(angle) + beyond * Math.cos(endHeading);
+				point.y = centerY + radius * Math.sin(angle) + beyond * Math.sin(endHeading);
+			}
+		}
+	}
+
+	private static class CurveSegment extends Segment {
+
+		private final PathSection section;
+		private final Pose2D pose = new Pose2D();
+
+		private CurveSegment(PathSection section, Waypoint end) {
+			super(end, section.length);
+			this.section = section;
+		}
+
+		@Override
+		protected double calculateProgress(Pose2D currentPosition) {
+			return section.getClosestDistance(currentPosition.x, currentPosition.y) / length;
+		}
 
-			return pt;
+		@Override
+		protected void getPoint(double portion, Waypoint point) {
+			double distance = portion * length;
+			section.getPose(Math.min(distance, length), pose);
+			double beyond = Math.max(0, distance - length);
+			double heading = Math.toRadians(pose.heading);
+			point.x = pose.x + beyond * Math.cos(heading);
+			point.y = pose.y + beyond * Math.sin(heading);
 		}
 	}
 
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.state.RobotSpeed;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Compiled holonomic trajectory, a table of field relative set-points sampled at a fixed time step.
+ * The last sample is at the end of the trajectory, which may be less than a time step after the
+ * sample before it.
+ * Evaluating a set-point is an index calculation and an interpolation between two samples, so it is
+ * constant time and allocation free.  Created by {@link HolonomicTrajectoryGenerator}.
+ * <p>
+ * Set-point speeds are field relative: forward is along the field x axis and strafe along the field
+ * y axis (inches/second); rotational is radians/second.  Use {@link #toRobotRelative} to convert to
+ * the robot frame for the drive.
+ */
+public class HolonomicTrajectory {
+
+	private final double timeStep;
+	private final double duration;
+	private final int count;
+
+	// samples: position, robot heading (degrees) and field relative velocities
+	private final double[] x;
+	private final double[] y;
+	private final double[] heading;
+	private final double[] vx;
+	private final double[] vy;
+	private final double[] omega;
+
+	HolonomicTrajectory(double timeStep, double duration, double[] x, double[] y, double[] heading, double[] vx, double[] vy,
+			double[] omega) {
+		this.timeStep = timeStep;
+		this.duration = duration;
+		this.count = x.length;
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		this.vx = vx;
+		this.vy = vy;
+		this.omega = omega;
+	}
+
+	/**
+	 * Evaluates the trajectory at the given time.  Times outside the trajectory are clamped to the
+	 * start or end.
+	 *
+	 * @param time - time from the start of the trajectory (seconds)
+	 * @param pose - receives the reference pose
+	 * @param fieldSpeed - receives the field relative speed set-point
+	 * @return true while the trajectory is active, false once complete
+	 */
+	public boolean getSetpoint(double time, Pose2D pose, RobotSpeed fieldSpeed) {
+		if (time >= duration || count < 2) {
+			int last = count - 1;
+			pose.x = x[last];
+			pose.y = y[last];
+			pose.heading = heading[last];
+			fieldSpeed.update(vx[last], omega[last], vy[last]);
+			return false;
+		}
+
+		// the last interval ends at the duration rather than a full time step later
+		int i = Math.min((int) (Math.max(0, time) / timeStep), count - 2);
+		double start = i * timeStep;
+		double f = Math.min(1, (Math.max(0, time) - start) / (Math.min(start + timeStep, duration) - start));
+		pose.x = x[i] + (x[i + 1] - x[i]) * f;
+		pose.y = y[i] + (y[i + 1] - y[i]) * f;
+		pose.heading = MathUtil.normalizeAngleDegrees(heading[i] + MathUtil.normalizeAngleDegrees(heading[i + 1] - heading[i]) * f);
+		fieldSpeed.update(
+				vx[i] + (vx[i + 1] - vx[i]) * f,
+				omega[i] + (omega[i + 1] - omega[i]) * f,
+				vy[i] + (vy[i + 1] - vy[i]) * f);
+		return true;
+	}
+
+	/**
+	 * Rotates a field relative speed into the robot frame.
+	 *
+	 * @param fieldSpeed - field relative speed
+	 * @param robotHeading - robot heading (degrees)
+	 * @param robotSpeed - receives the robot relative speed (may be the same object)
+	 * @return robotSpeed
+	 */
+	public static RobotSpeed toRobotRelative(RobotSpeed fieldSpeed, double robotHeading, RobotSpeed robotSpeed) {
+		double angle = Math.toRadians(robotHeading);
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+		double forward = fieldSpeed.forward * cos + fieldSpeed.strafe * sin;
+		double strafe = -fieldSpeed.forward * sin + fieldSpeed.strafe * cos;
+		robotSpeed.update(forward, fieldSpeed.rotational, strafe);
+		return robotSpeed;
+	}
+
+	/**
+	 * Returns the duration of the trajectory.
+	 *
+	 * @return duration (seconds)
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	public int getSampleCount() {
+		return count;
+	}
+
+	// sample arrays for bulk transforms
+	double[] getXValues() {
+		return x;
+	}
+
+	double[] getYValues() {
+		return y;
+	}
+
+	double[] getHeadingValues() {
+		return heading;
+	}
+
+	double[] getVxValues() {
+		return vx;
+	}
+
+	double[] getVyValues() {
+		return vy;
+	}
+
+	double[] getOmegaValues() {
+		return omega;
+	}
+}
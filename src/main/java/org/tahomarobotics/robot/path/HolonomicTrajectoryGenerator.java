@@ -0,0 +1,218 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.tahomarobotics.robot.motion.MotionProfile.Status;
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.motion.TrapezoidalMotionProfile;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Generates trajectories for holonomic (swerve or mecanum) drives.  The path sections only describe
+ * the direction of travel; the robot heading is profiled separately from the start heading to the end
+ * heading, so a straight line can be driven while turning to face the goal.
+ * <p>
+ * Travel is time parameterized on a distance grid with forward and backward passes.  The translational
+ * acceleration limit is shared between the tangential and the centripetal acceleration (on arcs) and
+ * the section speed limits are respected.  The heading follows a trapezoidal profile coordinated with
+ * the travel so both finish together; if the turn needs longer, the travel is slowed in time to match.
+ * The result is compiled into a {@link HolonomicTrajectory} table.
+ */
+public class HolonomicTrajectoryGenerator {
+
+	// distance grid spacing (inches) and default compiled time step (seconds)
+	private static final double DISTANCE_STEP = 0.5;
+	public static final double DEFAULT_TIME_STEP = 0.005;
+
+	/**
+	 * Generates a trajectory with the default time step.
+	 *
+	 * @param sections - path sections describing the direction of travel
+	 * @param startHeading - robot heading at the start (degrees)
+	 * @param endHeading - robot heading at the end (degrees)
+	 * @param maxAcceleration - translational acceleration limit (inches/sec^2)
+	 * @param maxRotationalVelocity - heading velocity limit (degrees/sec)
+	 * @param maxRotationalAcceleration - heading acceleration limit (degrees/sec^2)
+	 * @return compiled trajectory
+	 */
+	public static HolonomicTrajectory generate(List<PathSection> sections, double startHeading, double endHeading,
+			double maxAcceleration, double maxRotationalVelocity, double maxRotationalAcceleration) {
+		return generate(sections, startHeading, endHeading, maxAcceleration, maxRotationalVelocity,
+				maxRotationalAcceleration, DEFAULT_TIME_STEP);
+	}
+
+	/**
+	 * Generates a trajectory.
+	 *
+	 * @param sections - path sections describing the direction of travel
+	 * @param startHeading - robot heading at the start (degrees)
+	 * @param endHeading - robot heading at the end (degrees)
+	 * @param maxAcceleration - translational acceleration limit (inches/sec^2)
+	 * @param maxRotationalVelocity - heading velocity limit (degrees/sec)
+	 * @param maxRotationalAcceleration - heading acceleration limit (degrees/sec^2)
+	 * @param timeStep - time between compiled samples (seconds)
+	 * @return compiled trajectory
+	 */
+	public static HolonomicTrajectory generate(List<PathSection> sections, double startHeading, double endHeading,
+			double maxAcceleration, double maxRotationalVelocity, double maxRotationalAcceleration, double timeStep) {
+
+		if (maxAcceleration <= 0 || timeStep <= 0) {
+			throw new IllegalArgumentException("acceleration and time step must be positive");
+		}
+		if (sections.isEmpty()) {
+			throw new IllegalArgumentException("at least one path section required");
+		}
+
+		// distance grid
+		double length = 0;
+		for (PathSection section : sections) {
+			length += section.length;
+		}
+		int intervals = Math.max(1, (int) Math.ceil(length / DISTANCE_STEP));
+		double ds = length / intervals;
+		int points = intervals + 1;
+
+		double[] limit = new double[points];
+		double[] curvature = new double[intervals];
+		Arrays.fill(limit, Double.MAX_VALUE);
+
+		int sectionIndex = 0;
+		double sectionStart = 0;
+		for (int i = 0; i < intervals; i++) {
+			double mid = (i + 0.5) * ds;
+			while (sectionIndex < sections.size() - 1 && mid > sectionStart + sections.get(sectionIndex).length) {
+				sectionStart += sections.get(sectionIndex).length;
+				sectionIndex++;
+			}
+			PathSection section = sections.get(sectionIndex);
+			double k = Math.abs(section.getCurvature(mid - sectionStart));
+			double cap = section.maxVelocity;
+			if (k > 0) {
+				cap = Math.min(cap, Math.sqrt(maxAcceleration / k));
+			}
+			curvature[i] = k;
+			limit[i] = Math.min(limit[i], cap);
+			limit[i + 1] = Math.min(limit[i + 1], cap);
+		}
+
+		// forward and backward passes, sharing acceleration with the centripetal component
+		double[] v = new double[points];
+		v[0] = 0;
+		for (int i = 0; i < intervals; i++) {
+			v[i + 1] = Math.min(limit[i + 1], reachable(v[i], curvature[i], maxAcceleration, ds));
+		}
+		v[intervals] = 0;
+		for (int i = intervals - 1; i >= 0; i--) {
+			v[i] = Math.min(v[i], reachable(v[i + 1], curvature[i], maxAcceleration, ds));
+		}
+
+		// time at each grid point
+		double[] t = new double[points];
+		for (int i = 0; i < intervals; i++) {
+			double sum = v[i] + v[i + 1];
+			t[i + 1] = t[i] + (sum > 0 ? 2 * ds / sum : 0);
+		}
+		double travelTime = length > 0 ? t[intervals] : 0;
+
+		// heading profile coordinated with the travel
+		double turn = MathUtil.normalizeAngleDegrees(endHeading - startHeading);
+		TrapezoidalMotionProfile headingProfile = new TrapezoidalMotionProfile();
+		if (headingProfile.set(0, startHeading, startHeading + turn, 0, 0,
+				maxRotationalVelocity, maxRotationalAcceleration) != Status.OK) {
+			throw new IllegalArgumentException("invalid rotational limits: " + headingProfile.getStatus().message);
+		}
+		double turnTime = headingProfile.getEndTime();
+		double timeScale = 1;
+		if (turnTime > travelTime) {
+			timeScale = travelTime > 0 ? turnTime / travelTime : 1;
+		} else if (turnTime > 0) {
+			double k = travelTime / turnTime;
+			headingProfile.set(0, startHeading, startHeading + turn, 0, 0,
+					maxRotationalVelocity / k, maxRotationalAcceleration / (k * k));
+		}
+		double duration = Math.max(travelTime * timeScale, turnTime);
+
+		// compile the samples
+		int count = (int) Math.ceil(duration / timeStep - 1e-9) + 1;
+		double[] x = new double[count];
+		double[] y = new double[count];
+		double[] heading = new double[count];
+		double[] vx = new double[count];
+		double[] vy = new double[count];
+		double[] omega = new double[count];
+
+		Pose2D pose = new Pose2D();
+		MotionState rotSetpoint = new MotionState();
+		int interval = 0;
+		sectionIndex = 0;
+		sectionStart = 0;
+
+		for (int n = 0; n < count; n++) {
+			double time = Math.min(n * timeStep, duration);
+
+			// travel distance and speed at the scaled time
+			double travel = time / timeScale;
+			while (interval < intervals - 1 && travel > t[interval + 1]) {
+				interval++;
+			}
+			double tau = Math.max(0, Math.min(travel, t[interval + 1]) - t[interval]);
+			double a = (v[interval + 1] * v[interval + 1] - v[interval] * v[interval]) / (2 * ds);
+			double speed = Math.max(0, v[interval] + a * tau);
+			double distance = Math.min(length, interval * ds + v[interval] * tau + a * tau * tau / 2);
+			if (travel >= travelTime) {
+				distance = length;
+				speed = 0;
+			}
+			speed /= timeScale;
+
+			while (sectionIndex < sections.size() - 1 && distance > sectionStart + sections.get(sectionIndex).length) {
+				sectionStart += sections.get(sectionIndex).length;
+				sectionIndex++;
+			}
+			sections.get(sectionIndex).getPose(distance - sectionStart, pose);
+			double direction = Math.toRadians(pose.heading);
+
+			headingProfile.getSetpoint(time, rotSetpoint);
+
+			x[n] = pose.x;
+			y[n] = pose.y;
+			vx[n] = speed * Math.cos(direction);
+			vy[n] = speed * Math.sin(direction);
+			heading[n] = MathUtil.normalizeAngleDegrees(rotSetpoint.position);
+			omega[n] = Math.toRadians(rotSetpoint.velocity);
+		}
+
+		return new HolonomicTrajectory(timeStep, duration, x, y, heading, vx, vy, omega);
+	}
+
+	/**
+	 * Speed reachable over the distance from the given speed with the tangential acceleration left
+	 * after the centripetal acceleration.
+	 */
+	private static double reachable(double speed, double curvature, double maxAcceleration, double distance) {
+		double centripetal = speed * speed * curvature;
+		double tangential = Math.sqrt(Math.max(0, maxAcceleration * maxAcceleration - centripetal * centripetal));
+		return Math.sqrt(speed * speed + 2 * tangential * distance);
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.state.RobotSpeed;
+
+/**
+ * Latency Compensator predicts where the robot is now from a pose that was measured some time ago.
+ * The pose is advanced over the latency using the last commanded speed, with the motion profile
+ * set-point acceleration accounting for the speed change during that time.  The latency of every
+ * loop is recorded and filtered so the prediction horizon follows the measured delay.
+ * <p>
+ * Poses are in the path frame seen by the path controller (reversed for reversed paths); commanded
+ * speeds are as sent to the drive and the direction is used to convert them.
+ */
+public class LatencyCompensator {
+
+	private static final double DEFAULT_FILTER_GAIN = 0.1;
+
+	private final PathDirection direction;
+	private final double filterGain;
+
+	// filtered, last and maximum latency (seconds)
+	private double latency = 0;
+	private double lastLatency = 0;
+	private double maxLatency = 0;
+	private long sampleCount = 0;
+
+	// last command and profile accelerations (inches/sec^2 and radians/sec^2)
+	private final RobotSpeed command = new RobotSpeed();
+	private double acceleration = 0;
+	private double rotAcceleration = 0;
+
+	/**
+	 * Creates a compensator with the default latency filter gain.
+	 *
+	 * @param direction - direction the path is driven
+	 */
+	public LatencyCompensator(PathDirection direction) {
+		this(direction, DEFAULT_FILTER_GAIN);
+	}
+
+	/**
+	 * Creates a compensator.
+	 *
+	 * @param direction - direction the path is driven
+	 * @param filterGain - weight of each new latency sample (0 to 1)
+	 */
+	public LatencyCompensator(PathDirection direction, double filterGain) {
+		this.direction = direction;
+		this.filterGain = filterGain;
+	}
+
+	/**
+	 * Clears the latency statistics and the last command.
+	 */
+	public void reset() {
+		latency = lastLatency = maxLatency = 0;
+		sampleCount = 0;
+		command.update(0, 0, 0);
+		acceleration = rotAcceleration = 0;
+	}
+
+	/**
+	 * Records the latency of the current loop.
+	 *
+	 * @param measurementTime - time the pose was measured (seconds)
+	 * @param currentTime - time the pose is being used (seconds)
+	 */
+	public void recordLatency(double measurementTime, double currentTime) {
+		recordLatency(currentTime - measurementTime);
+	}
+
+	/**
+	 * Records the latency of the current loop.
+	 *
+	 * @param sample - delay between the pose measurement and its use (seconds)
+	 */
+	public void recordLatency(double sample) {
+		if (sample < 0 || Double.isNaN(sample)) {
+			return;
+		}
+		latency = sampleCount == 0 ? sample : latency + filterGain * (sample - latency);
+		lastLatency = sample;
+		maxLatency = Math.max(maxLatency, sample);
+		sampleCount++;
+	}
+
+	/**
+	 * Records the speed commanded to the drive this loop.
+	 *
+	 * @param speed - commanded speed (rotational in radians/sec)
+	 */
+	public void setCommand(RobotSpeed speed) {
+		command.copyFrom(speed);
+	}
+
+	/**
+	 * Records the active motion profile set-points.
+	 *
+	 * @param setpoint - forward set-point
+	 * @param rotSetpoint - rotational set-point (degrees) or null when not profiled
+	 */
+	public void setSetpoint(MotionState setpoint, MotionState rotSetpoint) {
+		acceleration = setpoint.acceleration;
+		rotAcceleration = rotSetpoint == null ? 0 : Math.toRadians(rotSetpoint.acceleration);
+	}
+
+	/**
+	 * Advances the pose over the filtered latency.
+	 *
+	 * @param pose - measured pose in the path frame
+	 * @param predicted - receives the predicted pose (may be the same object)
+	 */
+	public void predict(Pose2D pose, Pose2D predicted) {
+		double dt = latency;
+		double forward = direction.sign * command.forward * dt + 0.5 * acceleration * dt * dt;
+		double strafe = direction.sign * command.strafe * dt;
+		double rotation = command.rotational * dt + 0.5 * rotAcceleration * dt * dt;
+
+		double mid = Math.toRadians(pose.heading) + rotation / 2;
+		double cos = Math.cos(mid);
+		double sin = Math.sin(mid);
+
+		double x = pose.x + forward * cos - strafe * sin;
+		double y = pose.y + forward * sin + strafe * cos;
+		predicted.heading = pose.heading + Math.toDegrees(rotation);
+		predicted.x = x;
+		predicted.y = y;
+	}
+
+	/**
+	 * Returns the filtered latency used as the prediction horizon.
+	 *
+	 * @return latency (seconds)
+	 */
+	public double getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Returns the most recently recorded latency.
+	 *
+	 * @return latency (seconds)
+	 */
+	public double getLastLatency() {
+		return lastLatency;
+	}
+
+	/**
+	 * Returns the largest recorded latency.
+	 *
+	 * @return latency (seconds)
+	 */
+	public double getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * Returns the number of latency samples recorded.
+	 *
+	 * @return sample count
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+}
@@ -0,0 +1,368 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.statespace.Matrix;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Model Predictive Path Controller follows the path sections by solving a receding horizon
+ * quadratic program each update.  The robot is modeled relative to the path in distance rather
+ * than time: the cross track error and heading error over a horizon of fixed distance steps, with
+ * the curvature of each step as the input, limited to the maximum curvature.  Since this model does
+ * not depend on speed the problem matrix and its factorization are computed once at construction.
+ * Each update only forms the linear term and runs a bounded number of ADMM iterations (each a
+ * matrix-vector product and a clamp) on pre-allocated arrays, warm started from the previous solution.
+ * <p>
+ * Like pure pursuit this returns the commanded curvature.  Reversed paths are followed by providing
+ * the reversed pose.
+ */
+public class ModelPredictivePathController implements PathController {
+
+	public static final int DEFAULT_HORIZON = 20;
+	public static final double DEFAULT_STEP = 3.0;
+	public static final int DEFAULT_MAX_ITERATIONS = 25;
+
+	// convergence of the solution (curvature, 1/inches)
+	private static final double TOLERANCE = 1e-6;
+
+	// ADMM over-relaxation
+	private static final double RELAXATION = 1.6;
+
+	private final List<PathSection> sections;
+	private final double[] sectionStart;
+	private final double totalDistance;
+
+	private final int horizon;
+	private final double step;
+	private final double maxCurvature;
+	private final double rateWeight;
+	private int maxIterations = DEFAULT_MAX_ITERATIONS;
+
+	// constant problem: linear term per initial state (horizon x 2), (H + sigma I)^-1 (horizon x horizon)
+	private final double[] stateGain;
+	private final double[] factor;
+	private final double sigma;
+
+	// workspace
+	private final double[] curvatureRef;
+	private final double[] lower;
+	private final double[] upper;
+	private final double[] gradientBase;
+	private final double[] solution;
+	private final double[] dual;
+	private final double[] rhs;
+	private final double[] unconstrained;
+	private final double[] command;
+
+	private int sectionIndex;
+	private double distance;
+	private double previousDistance;
+	private double lastCurvature;
+	private boolean complete;
+	private int iterations;
+
+	private final Pose2D closest = new Pose2D();
+
+	/**
+	 * Creates the controller with the default horizon and solver limits.
+	 *
+	 * @param sections - path sections to be followed
+	 * @param maxCurvature - maximum curvature the robot may be commanded (1/inches)
+	 */
+	public ModelPredictivePathController(List<PathSection> sections, double maxCurvature) {
+		this(sections, DEFAULT_HORIZON, DEFAULT_STEP, maxCurvature, 1.0, 100.0, 1000.0, 10000.0);
+	}
+
+	/**
+	 * Creates the controller.
+	 *
+	 * @param sections - path sections to be followed
+	 * @param horizon - number of horizon steps
+	 * @param step - distance of each horizon step (inches)
+	 * @param maxCurvature - maximum curvature the robot may be commanded (1/inches)
+	 * @param crossTrackWeight - cost of cross track error (per inch squared)
+	 * @param headingWeight - cost of heading error (per radian squared)
+	 * @param curvatureWeight - cost of curvature deviating from the path (per 1/inch squared)
+	 * @param rateWeight - cost of curvature change between steps (per 1/inch squared)
+	 */
+	public ModelPredictivePathController(List<PathSection> sections, int horizon, double step, double maxCurvature,
+			double crossTrackWeight, double headingWeight, double curvatureWeight, double rateWeight) {
+		this.sections = sections;
+		this.horizon = horizon;
+		this.step = step;
+		this.maxCurvature = maxCurvature;
+		this.rateWeight = rateWeight;
+
+		sectionStart = new double[sections.size()];
+		double length = 0;
+		for (int i = 0; i < sections.size(); i++) {
+			sectionStart[i] = length;
+			length += sections.get(i).length;
+		}
+		totalDistance = length;
+
+		// state after step k+1 = Phi^(k+1) x0 + sum_j Gamma(k-j) w_j
+		// with Phi = [1 ds; 0 1] and B = [ds^2/2; ds]
+		int n = horizon;
+		double[] gammaY = new double[n * n];
+		double[] gammaT = new double[n * n];
+		for (int k = 0; k < n; k++) {
+			for (int j = 0; j <= k; j++) {
+				double d = (k - j) * step;
+				gammaY[k * n + j] = step * step / 2 + d * step;
+				gammaT[k * n + j] = step;
+			}
+		}
+
+		double[][] hessian = new double[n][n];
+		stateGain = new double[n * 2];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double sum = 0;
+				for (int k = 0; k < n; k++) {
+					sum += crossTrackWeight * gammaY[k * n + i] * gammaY[k * n + j]
+							+ headingWeight * gammaT[k * n + i] * gammaT[k * n + j];
+				}
+				hessian[i][j] = sum;
+			}
+			hessian[i][i] += curvatureWeight + 2 * rateWeight;
+			if (i + 1 < n) {
+				hessian[i][i + 1] -= rateWeight;
+				hessian[i + 1][i] -= rateWeight;
+			}
+
+			// initial state contribution: Gamma' Q Phi^(k+1) x0
+			double sy = 0, st = 0;
+			for (int k = 0; k < n; k++) {
+				double d = (k + 1) * step;
+				sy += crossTrackWeight * gammaY[k * n + i];
+				st += crossTrackWeight * gammaY[k * n + i] * d + headingWeight * gammaT[k * n + i];
+			}
+			stateGain[i * 2] = sy;
+			stateGain[i * 2 + 1] = st;
+		}
+		// last step has no following step in the rate cost
+		hessian[n - 1][n - 1] -= rateWeight;
+
+		// ADMM penalty scaled to the problem, with the factorization done once
+		double trace = 0;
+		for (int i = 0; i < n; i++) {
+			trace += hessian[i][i];
+		}
+		sigma = 0.1 * trace / n;
+		for (int i = 0; i < n; i++) {
+			hessian[i][i] += sigma;
+		}
+		double[][] inverse = Matrix.inverse(hessian);
+		factor = new double[n * n];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(inverse[i], 0, factor, i * n, n);
+		}
+
+		curvatureRef = new double[n];
+		lower = new double[n];
+		upper = new double[n];
+		gradientBase = new double[n];
+		solution = new double[n];
+		dual = new double[n];
+		rhs = new double[n];
+		unconstrained = new double[n];
+		command = new double[n];
+
+		reset();
+	}
+
+	/**
+	 * Limits the solver iterations of each update, bounding the worst case update time.
+	 *
+	 * @param maxIterations - maximum iterations
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = Math.max(1, maxIterations);
+	}
+
+	/**
+	 * Resets the path controller to start from the beginning of the path.
+	 */
+	public void reset() {
+		sectionIndex = 0;
+		distance = 0;
+		previousDistance = 0;
+		lastCurvature = 0;
+		complete = false;
+		Arrays.fill(command, 0);
+		Arrays.fill(dual, 0);
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Returns the number of solver iterations used by the last update.
+	 *
+	 * @return iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Using the current position, progress along the path and solve for the curvature over the
+	 * horizon.  The first curvature of the solution is returned.
+	 */
+	@Override
+	public double update(final Pose2D pose) {
+
+		updateProgress(pose);
+		if (complete) {
+			return 0;
+		}
+
+		// path relative errors
+		PathSection section = sections.get(sectionIndex);
+		section.getPose(distance - sectionStart[sectionIndex], closest);
+		double heading = Math.toRadians(closest.heading);
+		double crossTrack = -Math.sin(heading) * (pose.x - closest.x) + Math.cos(heading) * (pose.y - closest.y);
+		double headingError = Math.toRadians(MathUtil.normalizeAngleDegrees(pose.heading - closest.heading));
+
+		// path curvature and bounds over the horizon
+		int index = sectionIndex;
+		for (int k = 0; k < horizon; k++) {
+			double s = distance + (k + 0.5) * step;
+			while (index + 1 < sectionStart.length && s >= sectionStart[index + 1]) {
+				index++;
+			}
+			double kref = s < totalDistance ? sections.get(index).getCurvature(s - sectionStart[index]) : 0;
+			curvatureRef[k] = kref;
+			lower[k] = -maxCurvature - kref;
+			upper[k] = maxCurvature - kref;
+		}
+
+		// linear term: state contribution plus curvature change of the reference
+		for (int k = 0; k < horizon; k++) {
+			double g = stateGain[k * 2] * crossTrack + stateGain[k * 2 + 1] * headingError;
+			double d0 = curvatureRef[k] - (k > 0 ? curvatureRef[k - 1] : lastCurvature);
+			double d1 = k + 1 < horizon ? curvatureRef[k + 1] - curvatureRef[k] : 0;
+			gradientBase[k] = g + rateWeight * (d0 - d1);
+		}
+
+		// warm start from the previous solution shifted by the progress made
+		double shift = (distance - previousDistance) / step;
+		for (int k = 0; k < horizon; k++) {
+			double p = Math.min(k + shift, horizon - 1);
+			int i = (int) p;
+			double f = p - i;
+			double u = i + 1 < horizon ? command[i] + f * (command[i + 1] - command[i]) : command[horizon - 1];
+			solution[k] = clamp(u - curvatureRef[k], k);
+		}
+		if (shift >= 1) {
+			int s = Math.min((int) shift, horizon);
+			System.arraycopy(dual, s, dual, 0, horizon - s);
+			Arrays.fill(dual, horizon - s, horizon, 0);
+		}
+		previousDistance = distance;
+
+		solve();
+
+		for (int k = 0; k < horizon; k++) {
+			command[k] = solution[k] + curvatureRef[k];
+		}
+		lastCurvature = command[0];
+		return lastCurvature;
+	}
+
+	/**
+	 * ADMM iterations over the box constrained quadratic program (solution is kept within the bounds).
+	 */
+	private void solve() {
+		int n = horizon;
+
+		for (iterations = 1; iterations <= maxIterations; iterations++) {
+			for (int i = 0; i < n; i++) {
+				rhs[i] = sigma * (solution[i] - dual[i]) - gradientBase[i];
+			}
+
+			double primal = 0;
+			double change = 0;
+			for (int i = 0; i < n; i++) {
+				int row = i * n;
+				double w = 0;
+				for (int j = 0; j < n; j++) {
+					w += factor[row + j] * rhs[j];
+				}
+				unconstrained[i] = w;
+
+				double relaxed = RELAXATION * w + (1 - RELAXATION) * solution[i];
+				double z = clamp(relaxed + dual[i], i);
+				dual[i] += relaxed - z;
+
+				primal = Math.max(primal, Math.abs(w - z));
+				change = Math.max(change, Math.abs(z - solution[i]));
+				solution[i] = z;
+			}
+			if (primal < TOLERANCE && change < TOLERANCE) {
+				break;
+			}
+		}
+		iterations = Math.min(iterations, maxIterations);
+	}
+
+	private double clamp(double value, int k) {
+		return Math.max(lower[k], Math.min(upper[k], value));
+	}
+
+	/**
+	 * Advance the current section and distance along the path to the point closest to the robot.
+	 */
+	private void updateProgress(Pose2D pose) {
+		while (true) {
+			PathSection section = sections.get(sectionIndex);
+			double along = section.getClosestDistance(pose.x, pose.y);
+			distance = Math.max(distance, sectionStart[sectionIndex] + along);
+
+			if (along < section.length || sectionIndex + 1 >= sections.size()) {
+				break;
+			}
+			sectionIndex++;
+		}
+
+		PathSection last = sections.get(sections.size() - 1);
+		if (sectionIndex == sections.size() - 1 && isBeyondEnd(last, pose)) {
+			complete = true;
+		}
+	}
+
+	private static boolean isBeyondEnd(PathSection section, Pose2D pose) {
+		double heading = Math.toRadians(section.endPose.heading);
+		double dx = pose.x - section.endPose.x;
+		double dy = pose.y - section.endPose.y;
+		return dx * Math.cos(heading) + dy * Math.sin(heading) >= 0;
+	}
+}
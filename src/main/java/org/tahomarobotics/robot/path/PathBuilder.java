@@ -49,6 +49,12 @@ public class PathBuilder {
 
 	private static final double CURVE_SEG_SIZE = 5.0;
 
+	// largest arc angle of a single chord when discretizing to a tolerance (radians)
+	private static final double MAX_CHORD_ANGLE = Math.PI / 2;
+
+	// number of values per point in a point buffer (x, y, speed)
+	public static final int POINT_STRIDE = 3;
+
 	private final Mirror mirror;
 	private final PathDirection direction;
 
@@ -60,6 +66,9 @@ public class PathBuilder {
 
 	private final PathActions pathActions = new PathActions();
 
+	// pose used when sampling curves
+	private final Pose2D scratchPose = new Pose2D();
+
 	/**
 	 * Creates a path builder for constructing a path with lines and arcs starting at the specified
 	 * starting location and automatically mirroring the path per the mirroring specification.
@@ -235,6 +244,42 @@ public class PathBuilder {
 		addArc(2 * Math.toDegrees(angle), radius, maxSpeed, actions);
 	}
 
+	/**
+	 * Add a spline path segment from the end of the path to the specified pose.  The curvature starts
+	 * equal to the end of the previous section and ends at zero, so lines and further splines join
+	 * without a curvature step.  MaxSpeed constrains the speed for velocity profiling later.  Path
+	 * actions can be optionally added.
+	 *
+	 * @param x - x location on the field (inches from origin)
+	 * @param y - y location on the field (inches from origin)
+	 * @param heading - robot heading at the end point (degrees)
+	 * @param maxSpeed - maximum speed constrain (inches/second)
+	 * @param actions - optional path action for path commanding
+	 */
+	public void addSpline(double x, double y, double heading, double maxSpeed, PathAction... actions) {
+
+		Waypoint point = mirrorPoint(new Waypoint(x, y, maxSpeed), mirror);
+		double endHeading = advMirrorAngle(heading, mirror);
+		if (direction == PathDirection.Reversed) {
+			endHeading += 180;
+		}
+		endHeading = MathUtil.normalizeAngleDegrees(endHeading, startPose.heading);
+
+		double startCurvature = 0;
+		if (!sections.isEmpty()) {
+			PathSection last = sections.get(sections.size() - 1);
+			startCurvature = last.getCurvature(last.length);
+		}
+
+		PathSection section = new SplineSection(startPose, new Pose2D(point.x, point.y, endHeading),
+				startCurvature, 0, maxSpeed);
+		startPose = section.endPose;
+		sections.add(section);
+
+		pathActions.setupPathActions(totalLength, section.length, actions);
+		totalLength += section.length;
+	}
+
 	/**
 	 * Return the final pose of this path.
 	 *
@@ -273,8 +318,16 @@ public class PathBuilder {
 		for(PathSection section : sections) {
 
 
-			if (section.angle == 0.0) {
+			if (section.isLine()) {
 				waypoints.add(new Waypoint(section.startPose.x, section.startPose.y, section.maxVelocity));
+			} else if (!section.isArc()) {
+
+				// curves are sampled at equal distances for the total turn
+				int numSegments = (int)(((SplineSection) section).getTotalTurn()/CURVE_SEG_SIZE) + 1;
+				for (int i = 0; i < numSegments; i++) {
+					Pose2D pose = section.getPose(section.length * i / numSegments, new Pose2D());
+					waypoints.add(new Waypoint(pose.x, pose.y, section.maxVelocity));
+				}
 			} else {
 
 				int numSegments = (int)(Math.abs(section.angle)/CURVE_SEG_SIZE) + 1;
@@ -298,6 +351,144 @@ public class PathBuilder {
 		return waypoints;
 	}
 
+	/**
+	 * Return a generated list of way-points representing the path, with each arc divided into the
+	 * fewest chords which stay within the tolerance of the arc.
+	 *
+	 * @param tolerance - maximum distance of a chord from its arc (sagitta, inches)
+	 * @return list of path way-points
+	 */
+	public List<Waypoint> createWaypoints(double tolerance) {
+		double[] points = createPoints(tolerance);
+		List<Waypoint> waypoints = new ArrayList<>(points.length / POINT_STRIDE);
+		for (int i = 0; i < points.length; i += POINT_STRIDE) {
+			waypoints.add(new Waypoint(points[i], points[i + 1], points[i + 2]));
+		}
+		return waypoints;
+	}
+
+	/**
+	 * Return the path discretized to the tolerance as a poly-line.
+	 *
+	 * @param tolerance - maximum distance of a chord from its arc (sagitta, inches)
+	 * @return path poly-line
+	 */
+	public Polyline createPolyline(double tolerance) {
+		double[] points = createPoints(tolerance);
+		return new Polyline(points, points.length / POINT_STRIDE);
+	}
+
+	/**
+	 * Returns the number of points the path is discretized into for the tolerance.
+	 *
+	 * @param tolerance - maximum distance of a chord from its arc (sagitta, inches)
+	 * @return number of points
+	 */
+	public int getPointCount(double tolerance) {
+		int count = 1;
+		for (PathSection section : sections) {
+			count += getChordCount(section, tolerance);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the path discretized to the tolerance as (x, y, speed) values in a new buffer.
+	 *
+	 * @param tolerance - maximum distance of a chord from its arc (sagitta, inches)
+	 * @return point buffer with POINT_STRIDE values per point
+	 */
+	public double[] createPoints(double tolerance) {
+		double[] buffer = new double[getPointCount(tolerance) * POINT_STRIDE];
+		createPoints(tolerance, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Discretizes the path into the buffer as (x, y, speed) values without allocating.  Each arc is
+	 * divided into the fewest chords which stay within the tolerance of the arc, so gentle arcs get
+	 * few points and tight arcs get more.
+	 *
+	 * @param tolerance - maximum distance of a chord from its arc (sagitta, inches)
+	 * @param buffer - receives POINT_STRIDE values per point, at least getPointCount() points
+	 * @return number of points written
+	 */
+	public int createPoints(double tolerance, double[] buffer) {
+		int count = getPointCount(tolerance);
+		if (buffer.length < count * POINT_STRIDE) {
+			throw new IllegalArgumentException("point buffer too small for " + count + " points");
+		}
+
+		int index = 0;
+		double endX = 0;
+		double endY = 0;
+		for (PathSection section : sections) {
+			int chords = getChordCount(section, tolerance);
+
+			if (!section.isLine() && !section.isArc()) {
+				// curves are sampled at equal distances
+				for (int i = 0; i < chords; i++) {
+					section.getPose(section.length * i / chords, scratchPose);
+					buffer[index++] = scratchPose.x;
+					buffer[index++] = scratchPose.y;
+					buffer[index++] = section.maxVelocity;
+				}
+				endX = section.endPose.x;
+				endY = section.endPose.y;
+				continue;
+			}
+
+			double deltaAngle = section.angle / chords;
+			double chord = section.isLine() ? 0.0 :
+				2.0 * section.radius * Math.sin(Math.toRadians(Math.abs(deltaAngle)) / 2.0);
+
+			double x = section.startPose.x;
+			double y = section.startPose.y;
+			double heading = section.startPose.heading;
+			for (int i = 0; i < chords; i++) {
+				buffer[index++] = x;
+				buffer[index++] = y;
+				buffer[index++] = section.maxVelocity;
+				double halfAngle = Math.toRadians(heading + deltaAngle / 2);
+				x += chord * Math.cos(halfAngle);
+				y += chord * Math.sin(halfAngle);
+				heading += deltaAngle;
+			}
+
+			endX = section.endPose.x;
+			endY = section.endPose.y;
+		}
+		buffer[index++] = endX;
+		buffer[index++] = endY;
+		buffer[index++] = 0.0;
+
+		return count;
+	}
+
+	/**
+	 * Number of chords for a section, one for a line.  A chord spanning angle a on radius r deviates
+	 * from the arc by r (1 - cos(a/2)), which bounds the angle of each chord.  Curves use their
+	 * largest curvature k, where a chord of length c deviates by about k c^2 / 8.
+	 */
+	private static int getChordCount(PathSection section, double tolerance) {
+		if (section.isLine()) {
+			return 1;
+		}
+		if (!(tolerance > 0)) {
+			throw new IllegalArgumentException("tolerance must be positive");
+		}
+		if (!section.isArc()) {
+			SplineSection spline = (SplineSection) section;
+			double curvature = spline.getMaxCurvature();
+			int byLength = curvature > 0 ? (int) Math.ceil(section.length / Math.sqrt(8.0 * tolerance / curvature)) : 1;
+			int byTurn = (int) Math.ceil(Math.toRadians(spline.getTotalTurn()) / MAX_CHORD_ANGLE);
+			return Math.max(1, Math.max(byLength, byTurn));
+		}
+		double maxAngle = tolerance >= section.radius ? MAX_CHORD_ANGLE :
+			Math.min(MAX_CHORD_ANGLE, 2.0 * Math.acos(1.0 - tolerance / section.radius));
+		return Math.max(1, (int) Math.ceil(Math.toRadians(Math.abs(section.angle)) / maxAngle - 1e-9));
+	}
+
 	/**
 	 * Return the path actions which maintain each of the path added actions.
 	 *
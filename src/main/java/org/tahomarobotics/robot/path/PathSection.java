@@ -45,6 +45,25 @@ public class PathSection {
 		endPose.y += length * Math.sin(angleRadians);
 	}
 	
+	/**
+	 * Creates a section of another shape (such as a spline) from its measured length, heading change
+	 * and end pose.
+	 *
+	 * @param length - length along the section (inches)
+	 * @param angle - heading change from start to end (degrees)
+	 * @param maxVelocity - maximum speed constraint (inches/second)
+	 * @param startPose - pose at the start
+	 * @param endPose - pose at the end
+	 */
+	protected PathSection(double length, double angle, double maxVelocity, Pose2D startPose, Pose2D endPose) {
+		this.length = length;
+		this.angle = angle;
+		this.radius = 0.0;
+		this.maxVelocity = maxVelocity;
+		this.startPose = startPose;
+		this.endPose = endPose;
+	}
+
 	public PathSection(double angle, double radius, double maxVelocity, Pose2D startPose) {
 		double angleRadians = MathUtil.normalizeAngle(Math.toRadians(angle));
 		this.length = Math.abs(angleRadians) * radius;
@@ -62,6 +81,97 @@ public class PathSection {
 		endPose.y += chord * Math.sin(halfAngle);
 	}		
 	
+	/**
+	 * Calculates the pose at the given distance along this section.
+	 *
+	 * @param distance - distance from the section start (inches)
+	 * @param pose - resultant pose
+	 * @return the provided pose
+	 */
+	public Pose2D getPose(double distance, Pose2D pose) {
+		double heading = Math.toRadians(startPose.heading);
+		if (angle == 0.0) {
+			pose.x = startPose.x + distance * Math.cos(heading);
+			pose.y = startPose.y + distance * Math.sin(heading);
+			pose.heading = startPose.heading;
+		} else {
+			double sign = Math.signum(angle);
+			double turned = sign * distance / radius;
+			pose.x = startPose.x + sign * radius * (Math.sin(heading + turned) - Math.sin(heading));
+			pose.y = startPose.y - sign * radius * (Math.cos(heading + turned) - Math.cos(heading));
+			pose.heading = startPose.heading + Math.toDegrees(turned);
+		}
+		return pose;
+	}
+
+	/**
+	 * Returns the distance along this section of the point closest to the given location.
+	 *
+	 * @param x - x location on the field (inches from origin)
+	 * @param y - y location on the field (inches from origin)
+	 * @return distance from the section start, limited to the section (inches)
+	 */
+	public double getClosestDistance(double x, double y) {
+		double heading = Math.toRadians(startPose.heading);
+		double dx = x - startPose.x;
+		double dy = y - startPose.y;
+		if (angle == 0.0) {
+			double distance = dx * Math.cos(heading) + dy * Math.sin(heading);
+			return Math.max(0, Math.min(length, distance));
+		}
+
+		// angle turned about the arc center to reach the location
+		double sign = Math.signum(angle);
+		double cx = -sign * radius * Math.sin(heading);
+		double cy = sign * radius * Math.cos(heading);
+		double turned = sign * (Math.atan2(dy - cy, dx - cx) - Math.atan2(-cy, -cx));
+		turned = MathUtil.normalizeAngle(turned, Math.PI);
+
+		double sweep = length / radius;
+		if (turned > sweep) {
+			// beyond the arc, pick the closer end
+			return (turned - sweep < MathUtil.TWO_PI - turned) ? length : 0;
+		}
+		return turned * radius;
+	}
+
+	/**
+	 * Returns the curvature of this section (positive is counter-clockwise).
+	 *
+	 * @return curvature ( = 1/radius )
+	 */
+	public double getCurvature() {
+		return angle == 0.0 ? 0.0 : Math.signum(angle) / radius;
+	}
+
+	/**
+	 * Returns the curvature at the given distance along this section (positive is counter-clockwise).
+	 *
+	 * @param distance - distance from the section start (inches)
+	 * @return curvature ( = 1/radius )
+	 */
+	public double getCurvature(double distance) {
+		return getCurvature();
+	}
+
+	/**
+	 * Indicates if this section is a straight line.
+	 *
+	 * @return true for a line
+	 */
+	public boolean isLine() {
+		return angle == 0.0;
+	}
+
+	/**
+	 * Indicates if this section is a circular arc.
+	 *
+	 * @return true for an arc
+	 */
+	public boolean isArc() {
+		return angle != 0.0;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("Section: %6.1f %6.1f %6.1f - start%s - end%s", length, angle, maxVelocity, startPose, endPose);
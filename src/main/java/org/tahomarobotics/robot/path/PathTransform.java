@@ -0,0 +1,200 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import org.tahomarobotics.robot.path.PathBuilder.Mirror;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Mirror and direction transform applied in place to whole paths.  A path generated once (forward and
+ * not mirrored) can be turned into any of the Mirror x PathDirection variants without re-building it
+ * and without allocating per point.
+ * <p>
+ * Reversing turns the start heading around, which rotates the whole path half a turn about its start.
+ * Locations are then mirrored about the field center lines as in {@link PathBuilder#mirrorPoint} and
+ * headings reflected as in {@link PathBuilder#advMirrorAngle}.  Each is an affine map (value * scale +
+ * offset) so the inner loops over the primitive arrays have no branches or calls and can be vectorized
+ * by the compiler.
+ * <p>
+ * The result matches building the path with PathBuilder from the same initial pose.  PathBuilder
+ * mirrors the start heading as in {@link PathBuilder#mirrorPose2D}, which turns it around for X and
+ * Both but does not reflect it.  That is a reflection only when the start heading is along the field
+ * length, so Mirror.X and Mirror.Y are rejected for any other start heading.  Sections built to a
+ * field location (addArcToPoint, addSpline) are not rotated by PathBuilder when reversed, so
+ * reversing matches only paths of lines and arcs.
+ */
+public final class PathTransform {
+
+	// largest start heading difference from the field length for Mirror.X and Mirror.Y (degrees)
+	private static final double HEADING_TOLERANCE = 1e-9;
+
+	public final Mirror mirror;
+	public final PathDirection direction;
+
+	private final double scaleX;
+	private final double offsetX;
+	private final double scaleY;
+	private final double offsetY;
+	private final double headingScale;
+	private final double headingOffset;
+
+	/**
+	 * Creates the transform from the path built forward and not mirrored from the initial pose to the
+	 * path built with the mirror and direction.
+	 *
+	 * @param initialPose - starting position the path is built from (not mirrored)
+	 * @param mirror - mirroring specification
+	 * @param direction - forward or reversed
+	 * @throws IllegalArgumentException for Mirror.X or Mirror.Y unless the start heading is 0 or 180
+	 */
+	public PathTransform(Pose2D initialPose, Mirror mirror, PathDirection direction) {
+		this.mirror = mirror;
+		this.direction = direction;
+
+		boolean mirrorX = mirror == Mirror.X || mirror == Mirror.Both;
+		boolean mirrorY = mirror == Mirror.Y || mirror == Mirror.Both;
+
+		// PathBuilder does not reflect the start heading, which only mirrors a path along the field length
+		double heading = Math.abs(MathUtil.normalizeAngleDegrees(initialPose.heading));
+		if (mirrorX != mirrorY && heading > HEADING_TOLERANCE && heading < 180 - HEADING_TOLERANCE) {
+			throw new IllegalArgumentException("Mirror " + mirror + " does not match PathBuilder for a start heading of "
+					+ initialPose.heading + " degrees");
+		}
+		double mx = mirrorX ? -1 : 1;
+		double my = mirrorY ? -1 : 1;
+
+		// half turn about the start: p' = r p + (1 - r) p0, then mirrored: p'' = m p' + c
+		double r = direction.sign;
+		scaleX = mx * r;
+		offsetX = mx * (1 - r) * initialPose.x + (mirrorX ? PathConstants.FIELD_LENGTH : 0);
+		scaleY = my * r;
+		offsetY = my * (1 - r) * initialPose.y + (mirrorY ? PathConstants.FIELD_WIDTH : 0);
+
+		// reflection in one axis reverses the sense of rotation, about x also turns the heading around
+		headingScale = mx * my;
+		headingOffset = (mirrorX ? 180 : 0) + (direction == PathDirection.Reversed ? 180 : 0);
+	}
+
+	/**
+	 * Returns true if the transform leaves paths unchanged.
+	 */
+	public boolean isIdentity() {
+		return mirror == Mirror.None && direction == PathDirection.Forward;
+	}
+
+	/**
+	 * Transforms the pose in place.
+	 *
+	 * @param pose - robot pose
+	 * @return pose
+	 */
+	public Pose2D apply(Pose2D pose) {
+		pose.x = pose.x * scaleX + offsetX;
+		pose.y = pose.y * scaleY + offsetY;
+		pose.heading = MathUtil.normalizeAngleDegrees(pose.heading * headingScale + headingOffset);
+		return pose;
+	}
+
+	/**
+	 * Transforms the way-point location in place.
+	 *
+	 * @param waypoint - robot way-point
+	 * @return waypoint
+	 */
+	public Waypoint apply(Waypoint waypoint) {
+		waypoint.x = waypoint.x * scaleX + offsetX;
+		waypoint.y = waypoint.y * scaleY + offsetY;
+		return waypoint;
+	}
+
+	/**
+	 * Transforms the locations of a poly-line in place.
+	 *
+	 * @param polyline - path poly-line
+	 * @return polyline
+	 */
+	public Polyline apply(Polyline polyline) {
+		affine(polyline.getXValues(), 0, polyline.size(), scaleX, offsetX);
+		affine(polyline.getYValues(), 0, polyline.size(), scaleY, offsetY);
+		return polyline;
+	}
+
+	/**
+	 * Transforms the locations of (x, y, speed) points in place, as written by PathBuilder.createPoints().
+	 *
+	 * @param points - buffer with PathBuilder.POINT_STRIDE values per point
+	 * @param count - number of points in the buffer
+	 */
+	public void applyPoints(double[] points, int count) {
+		int end = count * PathBuilder.POINT_STRIDE;
+		for (int i = 0; i < end; i += PathBuilder.POINT_STRIDE) {
+			points[i] = points[i] * scaleX + offsetX;
+			points[i + 1] = points[i + 1] * scaleY + offsetY;
+		}
+	}
+
+	/**
+	 * Transforms headings in place.
+	 *
+	 * @param headings - robot headings (degrees)
+	 * @param from - first index
+	 * @param to - index after the last
+	 */
+	public void applyHeadings(double[] headings, int from, int to) {
+		for (int i = from; i < to; i++) {
+			double a = headings[i] * headingScale + headingOffset;
+			headings[i] = a - 360d * Math.floor((a + 180d) / 360d);
+		}
+	}
+
+	/**
+	 * Transforms the samples of a compiled trajectory in place.  Velocities are mirrored with the
+	 * locations and the rotation rate with the headings.
+	 *
+	 * @param trajectory - holonomic trajectory
+	 * @return trajectory
+	 */
+	public HolonomicTrajectory apply(HolonomicTrajectory trajectory) {
+		int count = trajectory.getSampleCount();
+		affine(trajectory.getXValues(), 0, count, scaleX, offsetX);
+		affine(trajectory.getYValues(), 0, count, scaleY, offsetY);
+		affine(trajectory.getVxValues(), 0, count, scaleX, 0);
+		affine(trajectory.getVyValues(), 0, count, scaleY, 0);
+		affine(trajectory.getOmegaValues(), 0, count, headingScale, 0);
+		applyHeadings(trajectory.getHeadingValues(), 0, count);
+		return trajectory;
+	}
+
+	/**
+	 * Applies value * scale + offset to the range of values in place.
+	 */
+	static void affine(double[] values, int from, int to, double scale, double offset) {
+		for (int i = from; i < to; i++) {
+			values[i] = values[i] * scale + offset;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return mirror + " " + direction;
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact poly-line path with the x, y and speed of each point held in parallel arrays.  Completion
+ * listeners are rare, so they are kept in a side table keyed by point index rather than in each point.
+ * Iterating a poly-line touches only the primitive arrays.
+ */
+public class Polyline {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private double[] x;
+	private double[] y;
+	private double[] speed;
+	private int size = 0;
+
+	private final Map<Integer, List<CompletionListener>> listeners = new HashMap<>();
+
+	public Polyline() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty poly-line with room for the number of points.
+	 *
+	 * @param capacity - initial number of points
+	 */
+	public Polyline(int capacity) {
+		capacity = Math.max(capacity, 2);
+		x = new double[capacity];
+		y = new double[capacity];
+		speed = new double[capacity];
+	}
+
+	/**
+	 * Creates a poly-line from (x, y, speed) values as written by PathBuilder.createPoints().
+	 *
+	 * @param points - buffer with PathBuilder.POINT_STRIDE values per point
+	 * @param count - number of points in the buffer
+	 */
+	public Polyline(double[] points, int count) {
+		this(count);
+		for (int i = 0, j = 0; i < count; i++, j += PathBuilder.POINT_STRIDE) {
+			x[i] = points[j];
+			y[i] = points[j + 1];
+			speed[i] = points[j + 2];
+		}
+		size = count;
+	}
+
+	/**
+	 * Creates a poly-line from the locations and speeds of the way-points.
+	 *
+	 * @param waypoints - list of way-points
+	 */
+	public Polyline(List<Waypoint> waypoints) {
+		this(waypoints.size());
+		for (Waypoint waypoint : waypoints) {
+			add(waypoint.x, waypoint.y, waypoint.speed);
+		}
+	}
+
+	/**
+	 * Appends a point to the end of the poly-line.
+	 *
+	 * @param x - x location on the field (inches from origin)
+	 * @param y - y location on the field (inches from origin)
+	 * @param speed - maximum speed to this point (inches/second)
+	 * @return index of the point
+	 */
+	public int add(double x, double y, double speed) {
+		if (size == this.x.length) {
+			int capacity = size * 2;
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.speed = Arrays.copyOf(this.speed, capacity);
+		}
+		this.x[size] = x;
+		this.y[size] = y;
+		this.speed[size] = speed;
+		return size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getX(int index) {
+		return x[index];
+	}
+
+	public double getY(int index) {
+		return y[index];
+	}
+
+	public double getSpeed(int index) {
+		return speed[index];
+	}
+
+	// primitive arrays for bulk transforms, valid to size()
+	double[] getXValues() {
+		return x;
+	}
+
+	double[] getYValues() {
+		return y;
+	}
+
+	/**
+	 * Returns the straight line distance between two points.
+	 */
+	public double distance(int from, int to) {
+		double dx = x[to] - x[from];
+		double dy = y[to] - y[from];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Returns the length of the poly-line.
+	 */
+	public double getLength() {
+		double length = 0;
+		for (int i = 1; i < size; i++) {
+			length += distance(i - 1, i);
+		}
+		return length;
+	}
+
+	/**
+	 * Adds a listener notified when the follower captures the point.
+	 *
+	 * @param index - index of the point
+	 * @param listener - listener to notify
+	 */
+	public void addCompletionListener(int index, CompletionListener listener) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("point index " + index + " of " + size);
+		}
+		listeners.computeIfAbsent(index, k -> new ArrayList<>()).add(listener);
+	}
+
+	protected void fireCaptureEvent(int index) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+		List<CompletionListener> list = listeners.get(index);
+		if (list != null) {
+			for (CompletionListener listener : list) {
+				listener.onCompletion();
+			}
+		}
+	}
+
+	/**
+	 * Returns the points as a list of way-points (without listeners).
+	 */
+	public List<Waypoint> toWaypoints() {
+		List<Waypoint> waypoints = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			waypoints.add(new Waypoint(x[i], y[i], speed[i]));
+		}
+		return waypoints;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			sb.append(String.format("%6.3f %6.3f %6.3f\n", x[i], y[i], speed[i]));
+		}
+		return sb.toString();
+	}
+}
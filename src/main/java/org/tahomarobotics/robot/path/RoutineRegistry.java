@@ -0,0 +1,338 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tahomarobotics.robot.motion.Motion2DProfileFactory;
+import org.tahomarobotics.robot.motion.MotionProfiles;
+import org.tahomarobotics.robot.path.PathBuilder.Mirror;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.state.Pose2D;
+
+/**
+ * Routine Registry holds the autonomous routines and compiles every Mirror x PathDirection variant of
+ * each in parallel on a fork-join pool, typically during robot initialization.  The compiled paths and
+ * motion profiles are kept in a cache keyed by routine name, so selecting a routine when autonomous
+ * starts is a look-up rather than a path build on the control thread.
+ * <p>
+ * A routine is defined by a function adding its sections to a PathBuilder.  The function is called
+ * once per variant, from pool threads, so it should create any path actions itself rather than share
+ * them.  Path actions hold run-time state and are not cached.
+ */
+public class RoutineRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RoutineRegistry.class);
+
+	private static final Mirror[] MIRRORS = Mirror.values();
+	private static final PathDirection[] DIRECTIONS = PathDirection.values();
+	private static final int VARIANTS = MIRRORS.length * DIRECTIONS.length;
+
+	/**
+	 * Compiled variant of a routine.  The path sections and motion profiles are shared by everyone
+	 * selecting the routine and are not changed; followers and profile iterators are created per use.
+	 */
+	public static class CompiledRoutine {
+
+		public final String name;
+		public final Mirror mirror;
+		public final PathDirection direction;
+
+		private final List<PathSection> sections;
+		private final MotionProfiles motionProfiles;
+		private final Pose2D finalPose;
+		private final double length;
+
+		private CompiledRoutine(String name, Mirror mirror, PathDirection direction, PathBuilder builder,
+				MotionProfiles motionProfiles) {
+			this.name = name;
+			this.mirror = mirror;
+			this.direction = direction;
+			this.sections = Collections.unmodifiableList(new ArrayList<>(builder.getSections()));
+			this.motionProfiles = motionProfiles;
+			this.finalPose = builder.getFinalPose();
+
+			double length = 0;
+			for (PathSection section : sections) {
+				length += section.length;
+			}
+			this.length = length;
+		}
+
+		public List<PathSection> getSections() {
+			return sections;
+		}
+
+		/**
+		 * Returns the final pose of the routine (as PathBuilder.getFinalPose()).
+		 */
+		public Pose2D getFinalPose() {
+			return new Pose2D(finalPose);
+		}
+
+		public double getLength() {
+			return length;
+		}
+
+		public double getDuration() {
+			return motionProfiles.getTotalDuration();
+		}
+
+		/**
+		 * Creates motion profiles starting from the beginning which share the compiled profiles.
+		 *
+		 * @return MotionProfiles for retrieving set-points
+		 */
+		public MotionProfiles createMotionProfiles() {
+			return new MotionProfiles(motionProfiles);
+		}
+
+		/**
+		 * Creates a pure pursuit follower of the path sections.
+		 *
+		 * @param lookAheadDistance - look ahead distance used to tune the gain of the controller
+		 * @return path following controller
+		 */
+		public AdaptivePurePursuitController createController(double lookAheadDistance) {
+			return AdaptivePurePursuitController.createFromSections(sections, lookAheadDistance);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s %s %5.1f in %5.2f s", name, mirror, direction, length, getDuration());
+		}
+	}
+
+	private static class Definition {
+		private final String name;
+		private final Pose2D initialPose;
+		private final Consumer<PathBuilder> definition;
+
+		private Definition(String name, Pose2D initialPose, Consumer<PathBuilder> definition) {
+			this.name = name;
+			this.initialPose = new Pose2D(initialPose);
+			this.definition = definition;
+		}
+	}
+
+	private final Map<String, Definition> definitions = new LinkedHashMap<>();
+	private final double maxAccel;
+	private final double maxRotationalAccel;
+
+	// replaced as a whole when compiled, never changed once published
+	private volatile Map<String, CompiledRoutine[]> compiled = Collections.emptyMap();
+
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	/**
+	 * Creates a registry compiling forward motion profiles only.
+	 *
+	 * @param maxAccel - max acceleration constraint (inches/second^2)
+	 */
+	public RoutineRegistry(double maxAccel) {
+		this(maxAccel, 0);
+	}
+
+	/**
+	 * Creates a registry compiling forward motion profiles, and rotational profiles when the
+	 * rotational acceleration is positive.
+	 *
+	 * @param maxAccel - max acceleration constraint (inches/second^2)
+	 * @param maxRotationalAccel - max angular acceleration constraint (degrees/second^2), zero for none
+	 */
+	public RoutineRegistry(double maxAccel, double maxRotationalAccel) {
+		this.maxAccel = maxAccel;
+		this.maxRotationalAccel = maxRotationalAccel;
+	}
+
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Registers a routine.  Routines registered after precompute() are compiled on first selection
+	 * until precompute() is called again.
+	 *
+	 * @param name - unique routine name
+	 * @param initialPose - starting position (not mirrored)
+	 * @param definition - adds the routine sections to the builder
+	 */
+	public synchronized void register(String name, Pose2D initialPose, Consumer<PathBuilder> definition) {
+		if (definitions.containsKey(name)) {
+			throw new IllegalArgumentException("routine already registered: " + name);
+		}
+		definitions.put(name, new Definition(name, initialPose, definition));
+	}
+
+	public synchronized Set<String> getNames() {
+		return Collections.unmodifiableSet(new LinkedHashMap<>(definitions).keySet());
+	}
+
+	/**
+	 * Compiles every variant of every registered routine in parallel and publishes the cache.
+	 *
+	 * @return time taken (seconds)
+	 */
+	public double precompute() {
+		long start = System.nanoTime();
+
+		List<Definition> routines;
+		synchronized (this) {
+			routines = new ArrayList<>(definitions.values());
+		}
+
+		CompiledRoutine[] results = new CompiledRoutine[routines.size() * VARIANTS];
+		pool.invoke(new CompileTask(routines, results, 0, results.length));
+
+		Map<String, CompiledRoutine[]> cache = new HashMap<>();
+		for (int i = 0; i < routines.size(); i++) {
+			CompiledRoutine[] variants = new CompiledRoutine[VARIANTS];
+			System.arraycopy(results, i * VARIANTS, variants, 0, VARIANTS);
+			cache.put(routines.get(i).name, variants);
+		}
+		compiled = Collections.unmodifiableMap(cache);
+
+		double elapsed = (System.nanoTime() - start) * 1e-9;
+		LOGGER.info(String.format("Compiled %d routine variants in %.1f ms", results.length, elapsed * 1000));
+		return elapsed;
+	}
+
+	/**
+	 * Selects a compiled routine variant.
+	 *
+	 * @param name - routine name
+	 * @param mirror - mirroring specification
+	 * @param direction - forward or reversed
+	 * @return compiled routine
+	 */
+	public CompiledRoutine get(String name, Mirror mirror, PathDirection direction) {
+		CompiledRoutine[] variants = compiled.get(name);
+		if (variants != null) {
+			return variants[index(mirror, direction)];
+		}
+
+		Definition definition;
+		synchronized (this) {
+			definition = definitions.get(name);
+		}
+		if (definition == null) {
+			throw new IllegalArgumentException("unknown routine: " + name);
+		}
+		LOGGER.warn("Routine " + name + " not precomputed, compiling on selection");
+		return compile(definition, mirror, direction);
+	}
+
+	private static int index(Mirror mirror, PathDirection direction) {
+		return mirror.ordinal() * DIRECTIONS.length + direction.ordinal();
+	}
+
+	private CompiledRoutine compile(Definition definition, Mirror mirror, PathDirection direction) {
+		PathBuilder builder = createBuilder(definition, mirror, direction);
+		return new CompiledRoutine(definition.name, mirror, direction, builder, createMotionProfiles(builder));
+	}
+
+	/**
+	 * Builds the path sections of a routine variant without compiling motion profiles.
+	 *
+	 * @param name - routine name
+	 * @param mirror - mirroring specification
+	 * @param direction - forward or reversed
+	 * @return path builder holding the routine sections
+	 */
+	public PathBuilder createBuilder(String name, Mirror mirror, PathDirection direction) {
+		Definition definition;
+		synchronized (this) {
+			definition = definitions.get(name);
+		}
+		if (definition == null) {
+			throw new IllegalArgumentException("unknown routine: " + name);
+		}
+		return createBuilder(definition, mirror, direction);
+	}
+
+	private static PathBuilder createBuilder(Definition definition, Mirror mirror, PathDirection direction) {
+		PathBuilder builder = new PathBuilder(direction, mirror, definition.initialPose);
+		definition.definition.accept(builder);
+		return builder;
+	}
+
+	/**
+	 * Compiles the motion profiles of a routine with the limits of the registry.
+	 *
+	 * @param builder - path builder holding the routine sections
+	 * @return MotionProfiles for retrieving set-points
+	 */
+	public MotionProfiles createMotionProfiles(PathBuilder builder) {
+		return maxRotationalAccel > 0 ?
+				Motion2DProfileFactory.createTrapezoidMotionProfile(builder.getSections(), maxAccel, maxRotationalAccel) :
+				Motion2DProfileFactory.createTrapezoidMotionProfile(builder.getSections(), maxAccel, false);
+	}
+
+	public double getMaxAccel() {
+		return maxAccel;
+	}
+
+	public double getMaxRotationalAccel() {
+		return maxRotationalAccel;
+	}
+
+	@SuppressWarnings("serial")
+	private class CompileTask extends RecursiveAction {
+
+		private final List<Definition> routines;
+		private final CompiledRoutine[] results;
+		private final int start;
+		private final int end;
+
+		private CompileTask(List<Definition> routines, CompiledRoutine[] results, int start, int end) {
+			this.routines = routines;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new CompileTask(routines, results, start, mid),
+						new CompileTask(routines, results, mid, end));
+				return;
+			}
+
+			Definition definition = routines.get(start / VARIANTS);
+			int variant = start % VARIANTS;
+			Mirror mirror = MIRRORS[variant / DIRECTIONS.length];
+			PathDirection direction = DIRECTIONS[variant % DIRECTIONS.length];
+			results[start] = compile(definition, mirror, direction);
+		}
+	}
+}
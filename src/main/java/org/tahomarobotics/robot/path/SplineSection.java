@@ -0,0 +1,296 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Spline Section is a quintic Hermite curve between two poses with specified curvatures at both ends,
+ * so joining lines, arcs and other splines keeps the curvature continuous and the robot does not
+ * have to slow for a curvature step.
+ * <p>
+ * The spline parameter is not proportional to distance, so an arc length table is built once with
+ * Gauss-Legendre integration.  Pose and curvature queries by distance binary search the table and
+ * refine the parameter with Newton steps.
+ */
+public class SplineSection extends PathSection {
+
+	// parameter intervals in the arc length table
+	private static final int TABLE_SIZE = 64;
+
+	// 5 point Gauss-Legendre nodes and weights on [-1, 1]
+	private static final double[] GAUSS_NODES = {
+		0.0, -0.5384693101056831, 0.5384693101056831, -0.9061798459386640, 0.9061798459386640 };
+	private static final double[] GAUSS_WEIGHTS = {
+		0.5688888888888889, 0.4786286704993665, 0.4786286704993665, 0.2369268850561891, 0.2369268850561891 };
+
+	private static final int NEWTON_ITERATIONS = 3;
+
+	private final Curve curve;
+
+	/**
+	 * Polynomial coefficients and arc length table, built before the section so the length is known.
+	 */
+	private static class Curve {
+		// x and y polynomial coefficients, constant term first
+		private final double[] cx = new double[6];
+		private final double[] cy = new double[6];
+
+		// arc length and signed heading change (radians) at each table parameter
+		private final double[] distance = new double[TABLE_SIZE + 1];
+		private final double[] turn = new double[TABLE_SIZE + 1];
+
+		private double maxCurvature;
+		private double totalTurn;
+
+		private Curve(Pose2D start, Pose2D end, double startCurvature, double endCurvature) {
+			double h0 = Math.toRadians(start.heading);
+			double h1 = Math.toRadians(end.heading);
+			double scale = Math.hypot(end.x - start.x, end.y - start.y);
+
+			// first and second derivatives at the ends from heading and curvature
+			double d0x = scale * Math.cos(h0), d0y = scale * Math.sin(h0);
+			double d1x = scale * Math.cos(h1), d1y = scale * Math.sin(h1);
+			double dd0x = -startCurvature * scale * scale * Math.sin(h0), dd0y = startCurvature * scale * scale * Math.cos(h0);
+			double dd1x = -endCurvature * scale * scale * Math.sin(h1), dd1y = endCurvature * scale * scale * Math.cos(h1);
+
+			hermite(cx, start.x, d0x, dd0x, end.x, d1x, dd1x);
+			hermite(cy, start.y, d0y, dd0y, end.y, d1y, dd1y);
+
+			double du = 1.0 / TABLE_SIZE;
+			for (int i = 0; i < TABLE_SIZE; i++) {
+				double u0 = i * du;
+				distance[i + 1] = distance[i] + integrate(u0, u0 + du);
+
+				double mid = curvature(u0 + du / 2);
+				double ds = distance[i + 1] - distance[i];
+				turn[i + 1] = turn[i] + mid * ds;
+				totalTurn += Math.abs(mid) * ds;
+				maxCurvature = Math.max(maxCurvature, Math.max(Math.abs(mid), Math.abs(curvature(u0))));
+			}
+			maxCurvature = Math.max(maxCurvature, Math.abs(curvature(1.0)));
+		}
+
+		private static void hermite(double[] c, double p0, double d0, double dd0, double p1, double d1, double dd1) {
+			c[0] = p0;
+			c[1] = d0;
+			c[2] = dd0 / 2;
+			c[3] = -10 * p0 - 6 * d0 - 1.5 * dd0 + 0.5 * dd1 - 4 * d1 + 10 * p1;
+			c[4] = 15 * p0 + 8 * d0 + 1.5 * dd0 - dd1 + 7 * d1 - 15 * p1;
+			c[5] = -6 * p0 - 3 * d0 - 0.5 * dd0 + 0.5 * dd1 - 3 * d1 + 6 * p1;
+		}
+
+		private static double value(double[] c, double u) {
+			return c[0] + u * (c[1] + u * (c[2] + u * (c[3] + u * (c[4] + u * c[5]))));
+		}
+
+		private static double first(double[] c, double u) {
+			return c[1] + u * (2 * c[2] + u * (3 * c[3] + u * (4 * c[4] + u * 5 * c[5])));
+		}
+
+		private static double second(double[] c, double u) {
+			return 2 * c[2] + u * (6 * c[3] + u * (12 * c[4] + u * 20 * c[5]));
+		}
+
+		private double speed(double u) {
+			return Math.hypot(first(cx, u), first(cy, u));
+		}
+
+		private double curvature(double u) {
+			double dx = first(cx, u);
+			double dy = first(cy, u);
+			double s = Math.hypot(dx, dy);
+			return s > 0 ? (dx * second(cy, u) - dy * second(cx, u)) / (s * s * s) : 0;
+		}
+
+		/**
+		 * Arc length between two parameters with Gauss-Legendre integration.
+		 */
+		private double integrate(double u0, double u1) {
+			double half = (u1 - u0) / 2;
+			double center = (u0 + u1) / 2;
+			double sum = 0;
+			for (int i = 0; i < GAUSS_NODES.length; i++) {
+				sum += GAUSS_WEIGHTS[i] * speed(center + half * GAUSS_NODES[i]);
+			}
+			return sum * half;
+		}
+
+		/**
+		 * Table interval containing the distance.
+		 */
+		private int interval(double s) {
+			int lo = 0;
+			int hi = TABLE_SIZE - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (distance[mid] <= s) {
+					lo = mid;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			return lo;
+		}
+
+		/**
+		 * Spline parameter at the distance.
+		 */
+		private double parameter(double s) {
+			double length = distance[TABLE_SIZE];
+			s = Math.max(0, Math.min(length, s));
+			int i = interval(s);
+			double du = 1.0 / TABLE_SIZE;
+			double u0 = i * du;
+			double ds = distance[i + 1] - distance[i];
+			double u = u0 + (ds > 0 ? (s - distance[i]) / ds * du : 0);
+			for (int n = 0; n < NEWTON_ITERATIONS; n++) {
+				double v = speed(u);
+				if (v <= 0) {
+					break;
+				}
+				u -= (distance[i] + integrate(u0, u) - s) / v;
+				u = Math.max(u0, Math.min(u0 + du, u));
+			}
+			return u;
+		}
+
+		/**
+		 * Distance at the spline parameter.
+		 */
+		private double distance(double u) {
+			int i = Math.min(TABLE_SIZE - 1, (int) (u * TABLE_SIZE));
+			return distance[i] + integrate((double) i / TABLE_SIZE, u);
+		}
+	}
+
+	/**
+	 * Creates a spline section between the poses.
+	 *
+	 * @param startPose - pose at the start, heading is the direction of travel
+	 * @param endPose - pose at the end, heading is the direction of travel
+	 * @param startCurvature - curvature at the start (to match the preceding section)
+	 * @param endCurvature - curvature at the end (to match the following section)
+	 * @param maxVelocity - maximum speed constraint (inches/second)
+	 */
+	public SplineSection(Pose2D startPose, Pose2D endPose, double startCurvature, double endCurvature, double maxVelocity) {
+		this(new Curve(startPose, endPose, startCurvature, endCurvature), startPose, endPose, maxVelocity);
+	}
+
+	private SplineSection(Curve curve, Pose2D startPose, Pose2D endPose, double maxVelocity) {
+		super(curve.distance[TABLE_SIZE], Math.toDegrees(curve.turn[TABLE_SIZE]), maxVelocity, new Pose2D(startPose),
+				new Pose2D(endPose.x, endPose.y, MathUtil.normalizeAngleDegrees(endPose.heading,
+						startPose.heading + Math.toDegrees(curve.turn[TABLE_SIZE]))));
+		this.curve = curve;
+	}
+
+	@Override
+	public Pose2D getPose(double distance, Pose2D pose) {
+		double u = curve.parameter(distance);
+		pose.x = Curve.value(curve.cx, u);
+		pose.y = Curve.value(curve.cy, u);
+
+		// keep the heading continuous with the heading change so far
+		int i = curve.interval(Math.max(0, Math.min(length, distance)));
+		double expected = startPose.heading + Math.toDegrees(curve.turn[i]);
+		double heading = Math.toDegrees(Math.atan2(Curve.first(curve.cy, u), Curve.first(curve.cx, u)));
+		pose.heading = MathUtil.normalizeAngleDegrees(heading, expected);
+		return pose;
+	}
+
+	@Override
+	public double getClosestDistance(double x, double y) {
+		// closest table point, then Newton steps on the squared distance
+		double best = Double.MAX_VALUE;
+		double u = 0;
+		for (int i = 0; i <= TABLE_SIZE; i++) {
+			double t = (double) i / TABLE_SIZE;
+			double dx = Curve.value(curve.cx, t) - x;
+			double dy = Curve.value(curve.cy, t) - y;
+			double d = dx * dx + dy * dy;
+			if (d < best) {
+				best = d;
+				u = t;
+			}
+		}
+		for (int n = 0; n < NEWTON_ITERATIONS + 2; n++) {
+			double ex = Curve.value(curve.cx, u) - x;
+			double ey = Curve.value(curve.cy, u) - y;
+			double dx = Curve.first(curve.cx, u);
+			double dy = Curve.first(curve.cy, u);
+			double gradient = ex * dx + ey * dy;
+			double hessian = dx * dx + dy * dy + ex * Curve.second(curve.cx, u) + ey * Curve.second(curve.cy, u);
+			if (hessian <= 0) {
+				break;
+			}
+			u = Math.max(0, Math.min(1, u - gradient / hessian));
+		}
+		return Math.min(length, curve.distance(u));
+	}
+
+	/**
+	 * Returns the average curvature of this section.
+	 *
+	 * @return heading change over length
+	 */
+	@Override
+	public double getCurvature() {
+		return length > 0 ? curve.turn[TABLE_SIZE] / length : 0;
+	}
+
+	@Override
+	public double getCurvature(double distance) {
+		return curve.curvature(curve.parameter(distance));
+	}
+
+	/**
+	 * Returns the largest curvature magnitude along this section.
+	 *
+	 * @return maximum curvature ( = 1/radius )
+	 */
+	public double getMaxCurvature() {
+		return curve.maxCurvature;
+	}
+
+	/**
+	 * Returns the total heading change along this section, counting both directions of turning.
+	 *
+	 * @return total turn (degrees)
+	 */
+	public double getTotalTurn() {
+		return Math.toDegrees(curve.totalTurn);
+	}
+
+	@Override
+	public boolean isLine() {
+		return false;
+	}
+
+	@Override
+	public boolean isArc() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Spline: %6.1f %6.1f %6.1f - start%s - end%s", length, angle, maxVelocity, startPose, endPose);
+	}
+}
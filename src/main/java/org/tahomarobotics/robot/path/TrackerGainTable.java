@@ -0,0 +1,108 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import org.tahomarobotics.robot.statespace.DiscreteLQR;
+import org.tahomarobotics.robot.statespace.LinearPlant;
+
+/**
+ * Gain schedule for the linear time-varying unicycle trajectory tracker.  The unicycle error
+ * dynamics are linearized at a set of reference velocities and an LQR gain is solved for each one
+ * when the table is built.  Trackers only interpolate between the neighboring entries, so no
+ * linear algebra is done in the control loop.  A table is immutable and can be shared.
+ * <p>
+ * Errors are in the robot frame: along track (inches), cross track (inches) and heading (radians).
+ * Inputs are forward speed (inches/second) and rotational speed (radians/second).
+ */
+public class TrackerGainTable {
+
+	// gains per velocity entry [v][row * 3 + column] of the 2 x 3 gain matrix
+	private final double[][] gains;
+	private final double minVelocity;
+	private final double step;
+
+	/**
+	 * Builds the gain table for reference velocities from -maxVelocity to maxVelocity.
+	 *
+	 * @param maxVelocity - largest reference speed (inches/second)
+	 * @param entries - number of velocity entries (at least 2)
+	 * @param stateTolerances - acceptable along track, cross track and heading errors
+	 * @param inputTolerances - acceptable forward and rotational speed corrections
+	 * @param dt - loop period (seconds)
+	 */
+	public TrackerGainTable(double maxVelocity, int entries, double[] stateTolerances, double[] inputTolerances, double dt) {
+		if (entries < 2) {
+			throw new IllegalArgumentException("At least two entries required");
+		}
+		gains = new double[entries][];
+		minVelocity = -maxVelocity;
+		step = 2 * maxVelocity / (entries - 1);
+
+		for (int i = 0; i < entries; i++) {
+			double velocity = minVelocity + i * step;
+			if (Math.abs(velocity) < step * 1e-3) {
+				// cross track error is not controllable when stopped, use the average of either side
+				double[] forward = solve(step / 2, stateTolerances, inputTolerances, dt);
+				double[] reverse = solve(-step / 2, stateTolerances, inputTolerances, dt);
+				for (int j = 0; j < forward.length; j++) {
+					forward[j] = (forward[j] + reverse[j]) / 2;
+				}
+				gains[i] = forward;
+			} else {
+				gains[i] = solve(velocity, stateTolerances, inputTolerances, dt);
+			}
+		}
+	}
+
+	private static double[] solve(double velocity, double[] stateTolerances, double[] inputTolerances, double dt) {
+		// error dynamics linearized about the reference: d(ey)/dt = v * etheta
+		LinearPlant plant = new LinearPlant(
+				new double[][] { { 0, 0, 0 }, { 0, 0, velocity }, { 0, 0, 0 } },
+				new double[][] { { 1, 0 }, { 0, 0 }, { 0, 1 } },
+				new double[][] { { 1, 0, 0 }, { 0, 1, 0 }, { 0, 0, 1 } });
+		double[][] k = DiscreteLQR.calculateGain(plant, stateTolerances, inputTolerances, dt);
+		return new double[] { k[0][0], k[0][1], k[0][2], k[1][0], k[1][1], k[1][2] };
+	}
+
+	/**
+	 * Interpolates the gains for the reference velocity.
+	 *
+	 * @param velocity - reference forward speed
+	 * @param k - resultant 2 x 3 gains, row major (6 elements)
+	 */
+	public void getGains(double velocity, double[] k) {
+		double position = (velocity - minVelocity) / step;
+		int i = (int) Math.floor(position);
+		if (i < 0) {
+			System.arraycopy(gains[0], 0, k, 0, 6);
+			return;
+		}
+		if (i >= gains.length - 1) {
+			System.arraycopy(gains[gains.length - 1], 0, k, 0, 6);
+			return;
+		}
+		double f = position - i;
+		double[] lo = gains[i];
+		double[] hi = gains[i + 1];
+		for (int j = 0; j < 6; j++) {
+			k[j] = lo[j] + f * (hi[j] - lo[j]);
+		}
+	}
+}
@@ -0,0 +1,514 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.tahomarobotics.robot.motion.MotionProfile;
+import org.tahomarobotics.robot.motion.MotionProfiles;
+import org.tahomarobotics.robot.motion.MotionState;
+
+/**
+ * Binary file of a compiled trajectory: the path poly-line with its arc length index and the flattened
+ * phases of the motion profiles.  A loaded file is memory mapped and evaluated directly from the mapped
+ * buffer, so loading costs a checksum over the file rather than re-building paths and profiles.
+ * <p>
+ * The file is little endian: a fixed header followed by column arrays, doubles first then ints.
+ * <pre>
+ *   header   magic, version, point count, profile count, forward and rotational phase counts,
+ *            payload length, CRC32 of the file, path length, duration, source hash
+ *   points   x[], y[], speed[], distance[]       (distance is the arc length to each point)
+ *   profiles end time[]                         (of each forward profile)
+ *   phases   time[], position[], velocity[], acceleration[], jerk[]   (forward, then rotational)
+ *   index    first forward phase[], first rotational phase[]         (per profile, plus the end)
+ * </pre>
+ * A profile's phases are the states starting each constant jerk phase, the last being the end state,
+ * as held by MotionProfile.  The rotational arrays are absent when there is no rotation.  The CRC32 is
+ * of the whole file, header included, with the checksum itself taken as zero.
+ */
+public final class TrajectoryFile {
+
+	public static final int MAGIC = 0x4A544D42; // "BMTJ"
+	public static final int VERSION = 2;
+
+	private static final int HEADER_SIZE = 64;
+	private static final int POINT_COLUMNS = 4;
+	private static final int PHASE_COLUMNS = 5;
+
+	// header offsets
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int POINT_COUNT_OFFSET = 8;
+	private static final int PROFILE_COUNT_OFFSET = 12;
+	private static final int FORWARD_PHASE_COUNT_OFFSET = 16;
+	private static final int ROTATION_PHASE_COUNT_OFFSET = 20;
+	private static final int PAYLOAD_LENGTH_OFFSET = 24;
+	private static final int CHECKSUM_OFFSET = 32;
+	private static final int LENGTH_OFFSET = 40;
+	private static final int DURATION_OFFSET = 48;
+	private static final int SOURCE_HASH_OFFSET = 56;
+
+	private final ByteBuffer buffer;
+
+	private final int pointCount;
+	private final int profileCount;
+	private final int forwardPhaseCount;
+	private final int rotationPhaseCount;
+	private final double length;
+	private final double duration;
+
+	// byte offsets of the column arrays
+	private final int x;
+	private final int y;
+	private final int speed;
+	private final int distance;
+	private final int profileEnd;
+	private final int forwardPhases;
+	private final int rotationPhases;
+	private final int forwardIndex;
+	private final int rotationIndex;
+
+	private TrajectoryFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+			throw new IOException("not a trajectory file");
+		}
+		int version = buffer.getInt(VERSION_OFFSET);
+		if (version != VERSION) {
+			throw new IOException("unsupported trajectory file version " + version);
+		}
+
+		pointCount = buffer.getInt(POINT_COUNT_OFFSET);
+		profileCount = buffer.getInt(PROFILE_COUNT_OFFSET);
+		forwardPhaseCount = buffer.getInt(FORWARD_PHASE_COUNT_OFFSET);
+		rotationPhaseCount = buffer.getInt(ROTATION_PHASE_COUNT_OFFSET);
+		length = buffer.getDouble(LENGTH_OFFSET);
+		duration = buffer.getDouble(DURATION_OFFSET);
+
+		long payloadLength = buffer.getLong(PAYLOAD_LENGTH_OFFSET);
+		if (pointCount < 2 || profileCount < 1 || forwardPhaseCount < 2 || rotationPhaseCount < 0 ||
+				payloadLength != getPayloadLength(pointCount, profileCount, forwardPhaseCount, rotationPhaseCount) ||
+				HEADER_SIZE + payloadLength > buffer.capacity()) {
+			throw new IOException("corrupt trajectory file header");
+		}
+
+		if (checksum(buffer, HEADER_SIZE + (int) payloadLength) != buffer.getLong(CHECKSUM_OFFSET)) {
+			throw new IOException("trajectory file checksum mismatch");
+		}
+
+		x = HEADER_SIZE;
+		y = x + pointCount * Double.BYTES;
+		speed = y + pointCount * Double.BYTES;
+		distance = speed + pointCount * Double.BYTES;
+		profileEnd = distance + pointCount * Double.BYTES;
+		forwardPhases = profileEnd + profileCount * Double.BYTES;
+		rotationPhases = forwardPhases + forwardPhaseCount * PHASE_COLUMNS * Double.BYTES;
+		forwardIndex = rotationPhases + rotationPhaseCount * PHASE_COLUMNS * Double.BYTES;
+		rotationIndex = forwardIndex + (profileCount + 1) * Integer.BYTES;
+	}
+
+	private static long getPayloadLength(int pointCount, int profileCount, int forwardPhaseCount, int rotationPhaseCount) {
+		long doubles = (long) pointCount * POINT_COLUMNS + profileCount +
+				(long) (forwardPhaseCount + rotationPhaseCount) * PHASE_COLUMNS;
+		long ints = (long) (profileCount + 1) * (rotationPhaseCount > 0 ? 2 : 1);
+		return doubles * Double.BYTES + ints * Integer.BYTES;
+	}
+
+	/**
+	 * Writes a trajectory file for the path and its motion profiles.
+	 *
+	 * @param file - file to be written (replaced if it exists)
+	 * @param polyline - path poly-line
+	 * @param profiles - motion profiles along the path
+	 * @throws IOException on failure to write the file
+	 */
+	public static void write(Path file, Polyline polyline, MotionProfiles profiles) throws IOException {
+		write(file, polyline, profiles, 0);
+	}
+
+	/**
+	 * Writes a trajectory file for the path and its motion profiles, recording a hash of the source
+	 * the trajectory was generated from.
+	 *
+	 * @param file - file to be written (replaced if it exists)
+	 * @param polyline - path poly-line
+	 * @param profiles - motion profiles along the path
+	 * @param sourceHash - hash identifying the source definition
+	 * @throws IOException on failure to write the file
+	 */
+	public static void write(Path file, Polyline polyline, MotionProfiles profiles, long sourceHash) throws IOException {
+		List<MotionProfile> forward = profiles.getForwardProfiles();
+		List<MotionProfile> rotation = profiles.getRotationalProfiles();
+
+		int pointCount = polyline.size();
+		int profileCount = forward.size();
+		int forwardPhaseCount = countPhases(forward);
+		int rotationPhaseCount = rotation == null ? 0 : countPhases(rotation);
+		if (pointCount < 2) {
+			throw new IllegalArgumentException("poly-line must have at least two points");
+		}
+		if (rotation != null && rotation.size() != profileCount) {
+			throw new IllegalArgumentException("rotational profiles do not match the forward profiles");
+		}
+
+		long payloadLength = getPayloadLength(pointCount, profileCount, forwardPhaseCount, rotationPhaseCount);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (int) payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+
+		// points
+		buffer.position(HEADER_SIZE);
+		for (int i = 0; i < pointCount; i++) {
+			buffer.putDouble(polyline.getX(i));
+		}
+		for (int i = 0; i < pointCount; i++) {
+			buffer.putDouble(polyline.getY(i));
+		}
+		for (int i = 0; i < pointCount; i++) {
+			buffer.putDouble(polyline.getSpeed(i));
+		}
+		double length = 0;
+		for (int i = 0; i < pointCount; i++) {
+			length += i == 0 ? 0 : polyline.distance(i - 1, i);
+			buffer.putDouble(length);
+		}
+
+		// profiles and phases
+		for (MotionProfile profile : forward) {
+			buffer.putDouble(profile.getEndTime());
+		}
+		putPhases(buffer, forward, forwardPhaseCount);
+		if (rotation != null) {
+			putPhases(buffer, rotation, rotationPhaseCount);
+		}
+		putIndex(buffer, forward);
+		if (rotation != null) {
+			putIndex(buffer, rotation);
+		}
+
+		// header, then the checksum of the file with the checksum still zero
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, VERSION);
+		buffer.putInt(POINT_COUNT_OFFSET, pointCount);
+		buffer.putInt(PROFILE_COUNT_OFFSET, profileCount);
+		buffer.putInt(FORWARD_PHASE_COUNT_OFFSET, forwardPhaseCount);
+		buffer.putInt(ROTATION_PHASE_COUNT_OFFSET, rotationPhaseCount);
+		buffer.putLong(PAYLOAD_LENGTH_OFFSET, payloadLength);
+		buffer.putDouble(LENGTH_OFFSET, length);
+		buffer.putDouble(DURATION_OFFSET, profiles.getTotalDuration());
+		buffer.putLong(SOURCE_HASH_OFFSET, sourceHash);
+		buffer.putLong(CHECKSUM_OFFSET, checksum(buffer, buffer.capacity()));
+
+		buffer.rewind();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Calculates the CRC32 of the file with the checksum field taken as zero.
+	 *
+	 * @param buffer - file contents
+	 * @param size - file size (bytes)
+	 * @return checksum
+	 */
+	private static long checksum(ByteBuffer buffer, int size) {
+		CRC32 crc = new CRC32();
+		ByteBuffer bytes = buffer.duplicate();
+		bytes.position(0).limit(CHECKSUM_OFFSET);
+		crc.update(bytes);
+		crc.update(new byte[Long.BYTES]);
+		bytes.limit(size).position(CHECKSUM_OFFSET + Long.BYTES);
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	private static int countPhases(List<MotionProfile> profiles) {
+		int count = 0;
+		for (MotionProfile profile : profiles) {
+			count += profile.getPhaseCount();
+		}
+		return count;
+	}
+
+	private static void putPhases(ByteBuffer buffer, List<MotionProfile> profiles, int phaseCount) {
+		MotionState phase = new MotionState();
+		int start = buffer.position();
+		int column = phaseCount * Double.BYTES;
+		int index = 0;
+		for (MotionProfile profile : profiles) {
+			for (int i = 0; i < profile.getPhaseCount(); i++, index++) {
+				profile.getPhase(i, phase);
+				int offset = start + index * Double.BYTES;
+				buffer.putDouble(offset, phase.time);
+				buffer.putDouble(offset + column, phase.position);
+				buffer.putDouble(offset + 2 * column, phase.velocity);
+				buffer.putDouble(offset + 3 * column, phase.acceleration);
+				buffer.putDouble(offset + 4 * column, phase.jerk);
+			}
+		}
+		buffer.position(start + PHASE_COLUMNS * column);
+	}
+
+	private static void putIndex(ByteBuffer buffer, List<MotionProfile> profiles) {
+		int index = 0;
+		for (MotionProfile profile : profiles) {
+			buffer.putInt(index);
+			index += profile.getPhaseCount();
+		}
+		buffer.putInt(index);
+	}
+
+	/**
+	 * Loads a trajectory file by memory mapping it.  The header and checksum are verified, nothing
+	 * else is read until the trajectory is evaluated.
+	 *
+	 * @param file - trajectory file
+	 * @return mapped trajectory
+	 * @throws IOException on failure to read the file or if it is not a valid trajectory file
+	 */
+	public static TrajectoryFile load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new TrajectoryFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Wraps a buffer holding the contents of a trajectory file.
+	 *
+	 * @param buffer - file contents
+	 * @return trajectory
+	 * @throws IOException if it is not a valid trajectory file
+	 */
+	public static TrajectoryFile wrap(ByteBuffer buffer) throws IOException {
+		return new TrajectoryFile(buffer);
+	}
+
+	/**
+	 * Loads a trajectory file from the class path.  Resources in a directory are memory mapped,
+	 * resources in a jar are read into a direct buffer.
+	 *
+	 * @param name - resource name
+	 * @return trajectory or null if there is no such resource
+	 * @throws IOException on failure to read the resource or if it is not a valid trajectory file
+	 */
+	public static TrajectoryFile loadResource(String name) throws IOException {
+		URL url = TrajectoryFile.class.getClassLoader().getResource(name);
+		if (url == null) {
+			return null;
+		}
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return load(Paths.get(url.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+		}
+		try (InputStream in = url.openStream()) {
+			byte[] bytes = in.readAllBytes();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+			buffer.put(bytes).flip();
+			return new TrajectoryFile(buffer);
+		}
+	}
+
+	/**
+	 * Returns the hash of the source the trajectory was generated from, zero if not recorded.
+	 */
+	public long getSourceHash() {
+		return buffer.getLong(SOURCE_HASH_OFFSET);
+	}
+
+	public int getPointCount() {
+		return pointCount;
+	}
+
+	public double getX(int index) {
+		return buffer.getDouble(x + index * Double.BYTES);
+	}
+
+	public double getY(int index) {
+		return buffer.getDouble(y + index * Double.BYTES);
+	}
+
+	public double getSpeed(int index) {
+		return buffer.getDouble(speed + index * Double.BYTES);
+	}
+
+	/**
+	 * Returns the distance along the path to the point.
+	 */
+	public double getDistance(int index) {
+		return buffer.getDouble(distance + index * Double.BYTES);
+	}
+
+	/**
+	 * Returns the length of the path.
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * Calculates the location at a distance along the path, clamped to the path ends.  The speed is
+	 * that of the point starting the line it is on.
+	 *
+	 * @param distance - distance along the path (inches)
+	 * @param point - receives the location
+	 * @return point
+	 */
+	public Waypoint getPoint(double distance, Waypoint point) {
+		// last point with distance at or before
+		int low = 0;
+		int high = pointCount - 1;
+		while (high - low > 1) {
+			int mid = (low + high) >>> 1;
+			if (getDistance(mid) <= distance) {
+				low = mid;
+			} else {
+				high = mid;
+			}
+		}
+
+		double start = getDistance(low);
+		double span = getDistance(high) - start;
+		double f = span > 0 ? Math.min(Math.max((distance - start) / span, 0), 1) : 0;
+		point.x = getX(low) + (getX(high) - getX(low)) * f;
+		point.y = getY(low) + (getY(high) - getY(low)) * f;
+		point.speed = getSpeed(low);
+		return point;
+	}
+
+	/**
+	 * Copies the points into a poly-line for a path follower.
+	 *
+	 * @return path poly-line
+	 */
+	public Polyline createPolyline() {
+		Polyline polyline = new Polyline(pointCount);
+		for (int i = 0; i < pointCount; i++) {
+			polyline.add(getX(i), getY(i), getSpeed(i));
+		}
+		return polyline;
+	}
+
+	/**
+	 * Returns the time duration of the motion profiles in seconds.
+	 */
+	public double getTotalDuration() {
+		return duration;
+	}
+
+	public boolean hasRotation() {
+		return rotationPhaseCount > 0;
+	}
+
+	/**
+	 * Generate a motion profile set-point at the given elapsed time, as MotionProfiles.getSetpoint().
+	 *
+	 * @param elapsedTime - time (seconds) for the set-point
+	 * @param setpoint - set-point to be updated from the profile
+	 * @return profile completion boolean
+	 */
+	public boolean getSetpoint(final double elapsedTime, final MotionState setpoint) {
+		return getSetpoint(elapsedTime, setpoint, null);
+	}
+
+	public boolean getSetpoint(final double elapsedTime, final MotionState setpoint, final MotionState rotSetpoint) {
+		boolean rotate = rotSetpoint != null && rotationPhaseCount > 0;
+
+		if (!(elapsedTime < duration)) {
+			getPhase(forwardPhases, forwardPhaseCount, forwardPhaseCount - 1, setpoint);
+			if (rotate) {
+				getPhase(rotationPhases, rotationPhaseCount, rotationPhaseCount - 1, rotSetpoint);
+			}
+			return true;
+		}
+
+		// first profile ending after the time
+		int low = 0;
+		int high = profileCount - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (elapsedTime < buffer.getDouble(profileEnd + mid * Double.BYTES)) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+
+		getProfileSetpoint(elapsedTime, forwardPhases, forwardPhaseCount, forwardIndex, low, setpoint);
+		if (rotate) {
+			getProfileSetpoint(elapsedTime, rotationPhases, rotationPhaseCount, rotationIndex, low, rotSetpoint);
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates one profile as MotionProfile.getSetpoint(), holding the end state past its end.
+	 */
+	private void getProfileSetpoint(double time, int phases, int phaseCount, int index, int profile, MotionState setpoint) {
+		int first = buffer.getInt(index + profile * Integer.BYTES);
+		int end = buffer.getInt(index + (profile + 1) * Integer.BYTES);
+
+		for (int i = first + 1; i < end; i++) {
+			if (time < buffer.getDouble(phases + i * Double.BYTES)) {
+				getPhase(phases, phaseCount, i - 1, setpoint);
+				double dt = time - setpoint.time;
+				double jt = setpoint.jerk * dt;
+				double jt2 = jt * dt / 2;
+				double jt3 = jt2 * dt / 3;
+				double at = setpoint.acceleration * dt;
+				double at2 = at * dt / 2;
+				double vt = setpoint.velocity * dt;
+
+				setpoint.time = time;
+				setpoint.position += vt + at2 + jt3;
+				setpoint.velocity += at + jt2;
+				setpoint.acceleration += jt;
+				return;
+			}
+		}
+		getPhase(phases, phaseCount, end - 1, setpoint);
+	}
+
+	private void getPhase(int phases, int phaseCount, int index, MotionState phase) {
+		int column = phaseCount * Double.BYTES;
+		int offset = phases + index * Double.BYTES;
+		phase.time = buffer.getDouble(offset);
+		phase.position = buffer.getDouble(offset + column);
+		phase.velocity = buffer.getDouble(offset + 2 * column);
+		phase.acceleration = buffer.getDouble(offset + 3 * column);
+		phase.jerk = buffer.getDouble(offset + 4 * column);
+	}
+}
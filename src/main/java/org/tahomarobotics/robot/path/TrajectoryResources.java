@@ -0,0 +1,233 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tahomarobotics.robot.path.PathBuilder.Mirror;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+
+/**
+ * Trajectory Resources generates the trajectory files of every Mirror x PathDirection variant of the
+ * routines in a registry at build time, to be packaged as class path resources, and loads them at
+ * run time in place of compiling the routines.
+ * <p>
+ * Each file records a hash of the path sections it was generated from, along with the discretization
+ * tolerance and the profile limits.  Building the sections is cheap compared to discretizing and
+ * profiling them, so at run time the sections are re-built from the definitions and hashed, and a
+ * resource which no longer matches its source is rejected rather than followed.
+ * <p>
+ * The section values are computed with Math functions which may differ in the last bit between the
+ * build machine and the robot, so they are rounded to HASH_RESOLUTION before hashing.  Call verify()
+ * during robot initialization to check that the generated resources are accepted on the robot.
+ */
+public final class TrajectoryResources {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TrajectoryResources.class);
+
+	public static final String RESOURCE_DIRECTORY = "trajectories";
+
+	// maximum distance of a chord from its arc when discretizing paths (inches)
+	public static final double DEFAULT_TOLERANCE = 0.1;
+
+	// resolution of the hashed section values (inches and degrees)
+	public static final double HASH_RESOLUTION = 1e-6;
+
+	private static final long FULL_TURN = Math.round(360 / HASH_RESOLUTION);
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private TrajectoryResources() {
+	}
+
+	/**
+	 * Returns the class path resource name of a routine variant.
+	 *
+	 * @param name - routine name
+	 * @param mirror - mirroring specification
+	 * @param direction - forward or reversed
+	 * @return resource name
+	 */
+	public static String getResourceName(String name, Mirror mirror, PathDirection direction) {
+		return RESOURCE_DIRECTORY + "/" + name + "-" + mirror + "-" + direction + ".traj";
+	}
+
+	/**
+	 * Hashes the path sections and generation parameters of a trajectory (64 bit FNV-1a of the values
+	 * rounded to HASH_RESOLUTION, with headings taken modulo a full turn).
+	 *
+	 * @param sections - path sections
+	 * @param tolerance - discretization tolerance (inches)
+	 * @param registry - registry providing the profile limits
+	 * @return source hash
+	 */
+	public static long getSourceHash(List<PathSection> sections, double tolerance, RoutineRegistry registry) {
+		long hash = FNV_OFFSET;
+		hash = hash(hash, TrajectoryFile.VERSION);
+		hash = hash(hash, round(tolerance));
+		hash = hash(hash, round(registry.getMaxAccel()));
+		hash = hash(hash, round(registry.getMaxRotationalAccel()));
+		for (PathSection section : sections) {
+			hash = hash(hash, round(section.startPose.x));
+			hash = hash(hash, round(section.startPose.y));
+			hash = hash(hash, roundHeading(section.startPose.heading));
+			hash = hash(hash, round(section.endPose.x));
+			hash = hash(hash, round(section.endPose.y));
+			hash = hash(hash, roundHeading(section.endPose.heading));
+			hash = hash(hash, round(section.length));
+			hash = hash(hash, round(section.angle));
+			hash = hash(hash, round(section.radius));
+			hash = hash(hash, round(section.maxVelocity));
+		}
+		return hash;
+	}
+
+	private static long round(double value) {
+		return Math.round(value / HASH_RESOLUTION);
+	}
+
+	// +/-180 degrees are the same heading, so either side of the wrap hashes the same
+	private static long roundHeading(double heading) {
+		return Math.floorMod(round(heading), FULL_TURN);
+	}
+
+	private static long hash(long hash, long bits) {
+		for (int i = 0; i < Long.BYTES; i++, bits >>>= 8) {
+			hash = (hash ^ (bits & 0xff)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Generates the trajectory file of every variant of every routine in the registry.
+	 *
+	 * @param registry - routines
+	 * @param tolerance - discretization tolerance (inches)
+	 * @param outputDirectory - class path root the resources are written under
+	 * @return number of files written
+	 * @throws IOException on failure to write a file
+	 */
+	public static int generate(RoutineRegistry registry, double tolerance, Path outputDirectory) throws IOException {
+		Files.createDirectories(outputDirectory.resolve(RESOURCE_DIRECTORY));
+
+		int count = 0;
+		for (String name : registry.getNames()) {
+			for (Mirror mirror : Mirror.values()) {
+				for (PathDirection direction : PathDirection.values()) {
+					PathBuilder builder = registry.createBuilder(name, mirror, direction);
+					long hash = getSourceHash(builder.getSections(), tolerance, registry);
+					Path file = outputDirectory.resolve(getResourceName(name, mirror, direction));
+					TrajectoryFile.write(file, builder.createPolyline(tolerance), registry.createMotionProfiles(builder), hash);
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Loads the generated trajectory of a routine variant from the class path, verifying that it
+	 * matches the routine definition.
+	 *
+	 * @param registry - routines
+	 * @param tolerance - discretization tolerance the resources were generated with (inches)
+	 * @param name - routine name
+	 * @param mirror - mirroring specification
+	 * @param direction - forward or reversed
+	 * @return trajectory or null if missing, unreadable or out of date
+	 */
+	public static TrajectoryFile load(RoutineRegistry registry, double tolerance, String name, Mirror mirror,
+			PathDirection direction) {
+		String resource = getResourceName(name, mirror, direction);
+		try {
+			TrajectoryFile trajectory = TrajectoryFile.loadResource(resource);
+			if (trajectory == null) {
+				LOGGER.warn("Trajectory resource " + resource + " not found");
+				return null;
+			}
+
+			PathBuilder builder = registry.createBuilder(name, mirror, direction);
+			if (trajectory.getSourceHash() != getSourceHash(builder.getSections(), tolerance, registry)) {
+				LOGGER.warn("Trajectory resource " + resource + " does not match the routine definition");
+				return null;
+			}
+			return trajectory;
+
+		} catch (IOException e) {
+			LOGGER.warn("Failed to load trajectory resource " + resource, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Loads the generated trajectory of every variant of every routine in the registry, logging each
+	 * one which is missing, unreadable or does not match its routine definition.  Run on the robot to
+	 * check that resources generated at build time are accepted there.
+	 *
+	 * @param registry - routines
+	 * @param tolerance - discretization tolerance the resources were generated with (inches)
+	 * @return number of variants rejected
+	 */
+	public static int verify(RoutineRegistry registry, double tolerance) {
+		int total = 0;
+		int rejected = 0;
+		for (String name : registry.getNames()) {
+			for (Mirror mirror : Mirror.values()) {
+				for (PathDirection direction : PathDirection.values()) {
+					if (load(registry, tolerance, name, mirror, direction) == null) {
+						rejected++;
+					}
+					total++;
+				}
+			}
+		}
+		if (rejected > 0) {
+			LOGGER.warn(rejected + " of " + total + " trajectory resources rejected");
+		} else {
+			LOGGER.info("All " + total + " trajectory resources accepted");
+		}
+		return rejected;
+	}
+
+	/**
+	 * Generates the trajectory resources of a routine definitions class.
+	 * <p>
+	 * Usage: TrajectoryResources definitions-class output-directory [tolerance]
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: TrajectoryResources definitions-class output-directory [tolerance]");
+			System.exit(1);
+		}
+		double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+
+		RoutineDefinitions definitions = (RoutineDefinitions) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+		long start = System.nanoTime();
+		int count = generate(definitions.createRoutineRegistry(), tolerance, Paths.get(args[1]));
+		System.out.format("Generated %d trajectories in %.1f ms\n", count, (System.nanoTime() - start) * 1e-6);
+	}
+}
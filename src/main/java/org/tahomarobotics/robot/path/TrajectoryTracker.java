@@ -0,0 +1,176 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.util.List;
+
+import org.tahomarobotics.robot.motion.MotionProfiles;
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.state.RobotSpeed;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Time indexed trajectory tracker for a differential drive.  Unlike pure pursuit, which only uses
+ * the path geometry, this follows the reference pose and speeds of the forward and rotational
+ * motion profiles at the current time.  The reference pose is the point on the path sections at
+ * the forward profile distance, and the rotational profile (when present) provides the rotational
+ * speed feed-forward.  Errors in the robot frame are corrected with gains looked up from a
+ * pre-computed {@link TrackerGainTable}.
+ * <p>
+ * Output speeds are forward in inches/second and rotational in radians/second.
+ */
+public class TrajectoryTracker {
+
+	private final List<PathSection> sections;
+	private final MotionProfiles profiles;
+	private final TrackerGainTable gainTable;
+	private final PathDirection direction;
+
+	// path distance at the start of each section
+	private final double[] sectionStart;
+	private int sectionIndex;
+
+	private final MotionState setpoint = new MotionState();
+	private final MotionState rotSetpoint = new MotionState();
+	private final Pose2D reference = new Pose2D();
+	private final Pose2D robot = new Pose2D();
+	private final double[] k = new double[6];
+
+	private double alongTrackError;
+	private double crossTrackError;
+	private double headingError;
+
+	/**
+	 * Creates a tracker for the path.
+	 *
+	 * @param sections - path sections the profiles were created from
+	 * @param profiles - forward (and optionally rotational) motion profiles
+	 * @param gainTable - tracker gain schedule
+	 * @param direction - path direction used when building the path
+	 */
+	public TrajectoryTracker(List<PathSection> sections, MotionProfiles profiles, TrackerGainTable gainTable, PathDirection direction) {
+		this.sections = sections;
+		this.profiles = profiles;
+		this.gainTable = gainTable;
+		this.direction = direction;
+
+		sectionStart = new double[sections.size()];
+		double distance = 0;
+		for (int i = 0; i < sections.size(); i++) {
+			sectionStart[i] = distance;
+			distance += sections.get(i).length;
+		}
+	}
+
+	/**
+	 * Resets the tracker to start from the beginning of the trajectory.
+	 */
+	public void reset() {
+		profiles.reset();
+		sectionIndex = 0;
+	}
+
+	/**
+	 * Calculates the commanded speed to follow the trajectory.
+	 *
+	 * @param time - elapsed time since the start of the trajectory (seconds)
+	 * @param pose - current robot pose
+	 * @param speed - commanded robot speed
+	 * @return true when the trajectory time is complete
+	 */
+	public boolean update(final double time, final Pose2D pose, final RobotSpeed speed) {
+
+		boolean complete = profiles.hasRotation()
+				? profiles.getSetpoint(time, setpoint, rotSetpoint)
+				: profiles.getSetpoint(time, setpoint);
+
+		getReference(setpoint.position, reference);
+
+		double velocity = setpoint.velocity;
+		double rotational;
+		if (profiles.hasRotation()) {
+			rotational = Math.toRadians(rotSetpoint.velocity);
+		} else {
+			rotational = velocity * sections.get(sectionIndex).getCurvature(setpoint.position - sectionStart[sectionIndex]);
+		}
+
+		// track as if driving forward along the path
+		robot.x = pose.x;
+		robot.y = pose.y;
+		robot.heading = pose.heading;
+		if (direction == PathDirection.Reversed) {
+			robot.reverse();
+		}
+
+		// errors in the robot frame
+		double heading = Math.toRadians(robot.heading);
+		double cos = Math.cos(heading);
+		double sin = Math.sin(heading);
+		double dx = reference.x - robot.x;
+		double dy = reference.y - robot.y;
+		alongTrackError = cos * dx + sin * dy;
+		crossTrackError = -sin * dx + cos * dy;
+		headingError = Math.toRadians(MathUtil.normalizeAngleDegrees(reference.heading - robot.heading));
+
+		gainTable.getGains(velocity, k);
+		double forward = velocity + k[0] * alongTrackError + k[1] * crossTrackError + k[2] * headingError;
+		rotational += k[3] * alongTrackError + k[4] * crossTrackError + k[5] * headingError;
+
+		speed.update(direction.sign * forward, rotational, 0);
+		return complete;
+	}
+
+	/**
+	 * Finds the reference pose at the path distance.
+	 */
+	private void getReference(double distance, Pose2D pose) {
+		while (sectionIndex + 1 < sectionStart.length && distance >= sectionStart[sectionIndex + 1]) {
+			sectionIndex++;
+		}
+		while (sectionIndex > 0 && distance < sectionStart[sectionIndex]) {
+			sectionIndex--;
+		}
+		PathSection section = sections.get(sectionIndex);
+		section.getPose(Math.min(distance - sectionStart[sectionIndex], section.length), pose);
+	}
+
+	/**
+	 * Returns the reference pose of the last update.
+	 *
+	 * @return reference pose
+	 */
+	public Pose2D getReference() {
+		return reference;
+	}
+
+	public double getAlongTrackError() {
+		return alongTrackError;
+	}
+
+	public double getCrossTrackError() {
+		return crossTrackError;
+	}
+
+	public double getHeadingError() {
+		return headingError;
+	}
+}
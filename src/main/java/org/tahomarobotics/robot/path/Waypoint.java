@@ -26,7 +26,8 @@ import org.tahomarobotics.robot.state.Pose2D;
 
 public class Waypoint {
 	
-	private final List<CompletionListener> listeners = new ArrayList<>();
+	// allocated with the first listener, most way-points have none
+	private List<CompletionListener> listeners = null;
 
 	public double x;
 	public double y;
@@ -61,10 +62,16 @@ public class Waypoint {
 	}
 	
 	public void addCompletionListener(CompletionListener listener) {
+		if (listeners == null) {
+			listeners = new ArrayList<>(1);
+		}
 		listeners.add(listener);
 	}
 
 	protected void fireCaptureEvent() {
+		if (listeners == null) {
+			return;
+		}
 		for (CompletionListener listener : listeners) {
 			listener.onCompletion();
 		}
@@ -0,0 +1,359 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Control Pipeline runs the sensing, estimation and control steps of the robot loop as separate
+ * stages, each on its own thread.  The stages communicate through a ring of pre-allocated event
+ * slots which are handed down the pipeline by sequence number (in the style of a disruptor).  While
+ * the control stage is working on one sample the estimation stage can already work on the next.
+ * <p>
+ * The periodic loop calls {@link #publish(double)} to start a new sample.  If the ring is full the
+ * sample is dropped rather than blocking the caller, so the loop period is never stretched.  Each
+ * stage records its processing time and the latency since the sample was published.
+ */
+public class ControlPipeline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ControlPipeline.class);
+
+	// busy spins before parking a waiting stage
+	private static final int SPIN_TRIES = 200;
+
+	// park time of a waiting stage
+	private static final long PARK_NANOS = 20_000;
+
+	private final PipelineEvent[] ring;
+	private final int mask;
+	private final Stage[] stages;
+
+	// sequence of the last published sample
+	private final AtomicLong cursor = new AtomicLong(-1);
+
+	// next sequence to be published (publishing thread only)
+	private long nextSequence = 0;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean running = false;
+
+	/**
+	 * Creates a pipeline with the provided stages which are run in the order given.
+	 *
+	 * @param bufferSize - number of event slots (power of two)
+	 * @param outputCount - number of controller outputs carried by each slot
+	 * @param stages - pipeline stages in processing order
+	 */
+	public ControlPipeline(int bufferSize, int outputCount, PipelineStage... stages) {
+		if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException("bufferSize must be a power of two: " + bufferSize);
+		}
+		if (stages.length == 0) {
+			throw new IllegalArgumentException("at least one stage is required");
+		}
+
+		ring = new PipelineEvent[bufferSize];
+		mask = bufferSize - 1;
+		for (int i = 0; i < bufferSize; i++) {
+			ring[i] = new PipelineEvent(stages.length, outputCount);
+		}
+
+		this.stages = new Stage[stages.length];
+		AtomicLong barrier = cursor;
+		for (int i = 0; i < stages.length; i++) {
+			this.stages[i] = new Stage(i, stages[i], barrier);
+			barrier = this.stages[i].sequence;
+		}
+	}
+
+	/**
+	 * Starts a thread for each of the stages.  Stage threads still finishing from a previous stop()
+	 * are waited on first, so a stage never has two threads.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		for (Stage stage : stages) {
+			if (stage.thread != null) {
+				try {
+					stage.thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				stage.thread = null;
+			}
+		}
+		running = true;
+		for (Stage stage : stages) {
+			Thread thread = new Thread(stage, "pipeline-" + stage.name);
+			thread.setDaemon(true);
+			stage.thread = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the stage threads.  Samples in flight may not be processed.  A stage busy in its handler
+	 * keeps its thread until the handler returns.
+	 */
+	public synchronized void stop() {
+		running = false;
+		for (Stage stage : stages) {
+			if (stage.thread != null) {
+				LockSupport.unpark(stage.thread);
+				try {
+					stage.thread.join(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (!stage.thread.isAlive()) {
+					stage.thread = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Publishes a new sample into the pipeline.  This must always be called from the same thread.
+	 *
+	 * @param time - loop time of the sample (seconds)
+	 * @return false if the pipeline is full and the sample was dropped
+	 */
+	public boolean publish(double time) {
+		long sequence = nextSequence;
+
+		// slot is free once the last stage is done with it
+		if (sequence - ring.length > stages[stages.length - 1].sequence.get()) {
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		PipelineEvent event = ring[(int) sequence & mask];
+		event.sequence = sequence;
+		event.time = time;
+		event.timestamps[0] = System.nanoTime();
+
+		nextSequence++;
+		cursor.lazySet(sequence);
+
+		Thread first = stages[0].thread;
+		if (first != null) {
+			LockSupport.unpark(first);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the event slot for the given sequence number.  The content is only stable
+	 * once the last stage has completed that sequence.
+	 *
+	 * @param sequence - sample sequence number
+	 * @return event slot
+	 */
+	public PipelineEvent getEvent(long sequence) {
+		return ring[(int) sequence & mask];
+	}
+
+	/**
+	 * Returns the sequence number of the last sample completed by all stages.
+	 *
+	 * @return sequence number (-1 if none)
+	 */
+	public long getCompletedSequence() {
+		return stages[stages.length - 1].sequence.get();
+	}
+
+	/**
+	 * Returns the number of samples dropped due to a full pipeline.
+	 *
+	 * @return dropped sample count
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	public String getStageName(int stage) {
+		return stages[stage].name;
+	}
+
+	/**
+	 * Returns the processing time of the last sample for the given stage.
+	 *
+	 * @param stage - stage index
+	 * @return processing time (seconds)
+	 */
+	public double getProcessingTime(int stage) {
+		return 1e-9 * stages[stage].processingNanos;
+	}
+
+	/**
+	 * Returns the maximum processing time of the given stage.
+	 *
+	 * @param stage - stage index
+	 * @return processing time (seconds)
+	 */
+	public double getMaxProcessingTime(int stage) {
+		return 1e-9 * stages[stage].maxProcessingNanos;
+	}
+
+	/**
+	 * Returns the time from publishing to completion of the given stage for the last sample.
+	 *
+	 * @param stage - stage index
+	 * @return latency (seconds)
+	 */
+	public double getLatency(int stage) {
+		return 1e-9 * stages[stage].latencyNanos;
+	}
+
+	/**
+	 * Returns the maximum time from publishing to completion of the given stage.
+	 *
+	 * @param stage - stage index
+	 * @return latency (seconds)
+	 */
+	public double getMaxLatency(int stage) {
+		return 1e-9 * stages[stage].maxLatencyNanos;
+	}
+
+	/**
+	 * Clears the maximum processing times and latencies.
+	 */
+	public void resetStatistics() {
+		for (Stage stage : stages) {
+			stage.resetRequested = true;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < stages.length; i++) {
+			sb.append(String.format("%-16s proc %7.3f ms (max %7.3f) latency %7.3f ms (max %7.3f)\n", getStageName(i),
+					1e3 * getProcessingTime(i), 1e3 * getMaxProcessingTime(i),
+					1e3 * getLatency(i), 1e3 * getMaxLatency(i)));
+		}
+		sb.append("dropped ").append(getDroppedCount());
+		return sb.toString();
+	}
+
+	private class Stage implements Runnable {
+
+		private final int index;
+		private final String name;
+		private final PipelineStage handler;
+
+		// sequence processed by the previous stage (or published)
+		private final AtomicLong barrier;
+
+		// last sequence processed by this stage
+		private final AtomicLong sequence = new AtomicLong(-1);
+
+		private volatile Thread thread;
+
+		// statistics written by the stage thread only
+		private volatile long processingNanos;
+		private volatile long maxProcessingNanos;
+		private volatile long latencyNanos;
+		private volatile long maxLatencyNanos;
+		private volatile boolean resetRequested;
+
+		private Stage(int index, PipelineStage handler, AtomicLong barrier) {
+			this.index = index;
+			this.handler = handler;
+			this.barrier = barrier;
+			this.name = handler.getClass().getSimpleName();
+		}
+
+		@Override
+		public void run() {
+			long next = sequence.get() + 1;
+
+			while (running) {
+				long available = waitFor(next);
+
+				for (; next <= available; next++) {
+					PipelineEvent event = ring[(int) next & mask];
+
+					long start = System.nanoTime();
+					try {
+						handler.process(event);
+					} catch (RuntimeException e) {
+						LOGGER.error("Stage " + name + " failed on sequence " + next, e);
+					}
+					long end = System.nanoTime();
+					event.timestamps[index + 1] = end;
+
+					record(end - start, end - event.timestamps[0]);
+
+					// hand the slot on to the next stage
+					sequence.lazySet(next);
+					if (index + 1 < stages.length) {
+						Thread downstream = stages[index + 1].thread;
+						if (downstream != null) {
+							LockSupport.unpark(downstream);
+						}
+					}
+				}
+			}
+		}
+
+		private long waitFor(long next) {
+			int tries = SPIN_TRIES;
+			long available;
+			while ((available = barrier.get()) < next && running) {
+				if (tries > 0) {
+					tries--;
+					Thread.onSpinWait();
+				} else {
+					LockSupport.parkNanos(PARK_NANOS);
+				}
+			}
+			return available;
+		}
+
+		private void record(long processing, long latency) {
+			if (resetRequested) {
+				resetRequested = false;
+				maxProcessingNanos = 0;
+				maxLatencyNanos = 0;
+			}
+			processingNanos = processing;
+			latencyNanos = latency;
+			if (processing > maxProcessingNanos) {
+				maxProcessingNanos = processing;
+			}
+			if (latency > maxLatencyNanos) {
+				maxLatencyNanos = latency;
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.pipeline;
+
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.state.RobotSpeed;
+
+/**
+ * Pre-allocated slot of the control pipeline ring buffer.  Slots are created once with the
+ * pipeline and passed from stage to stage by sequence number, so no objects are created
+ * during the loop.
+ */
+public class PipelineEvent {
+
+	// sequence number currently held by this slot
+	long sequence = -1;
+
+	// System.nanoTime() when the slot was published followed by the completion of each stage
+	final long[] timestamps;
+
+	// loop time of the sample (seconds)
+	public double time;
+
+	// robot pose from sensing/estimation
+	public final Pose2D pose = new Pose2D();
+
+	// forward and rotational motion profile set-points
+	public final MotionState setpoint = new MotionState();
+	public final MotionState rotSetpoint = new MotionState();
+
+	// path controller output
+	public double curvature;
+
+	// commanded robot speed
+	public final RobotSpeed speed = new RobotSpeed();
+
+	// controller outputs (motor commands)
+	public final double[] outputs;
+
+	PipelineEvent(int stageCount, int outputCount) {
+		timestamps = new long[stageCount + 1];
+		outputs = new double[outputCount];
+	}
+
+	/**
+	 * Returns the sequence number of the sample held in this slot.
+	 *
+	 * @return sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the time from publishing the slot to the completion of the given stage.
+	 *
+	 * @param stage - stage index
+	 * @return latency (seconds)
+	 */
+	public double getLatency(int stage) {
+		return 1e-9 * (timestamps[stage + 1] - timestamps[0]);
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import java.util.List;
+
+import org.tahomarobotics.robot.motion.MotionController;
+import org.tahomarobotics.robot.motion.MotionProfiles;
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.path.AdaptivePurePursuitController;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.path.Waypoint;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.state.RobotSpeed;
+
+/**
+ * Runs an autonomous path with the adaptive pure pursuit controller and a motion profile against a
+ * simulated drive-train on a virtual clock.  A complete routine runs in a few milliseconds.
+ * <p>
+ * The forward speed follows the profile velocity, or the output of the motion controller when one is
+ * provided (position is the distance along the path, output in inches/second).  The rotational
+ * speed is the forward speed times the pure pursuit curvature.
+ */
+public class AutonomousSimulation {
+
+	public static final double DEFAULT_PERIOD = 0.020;
+
+	// additional time past the end of the profile before giving up
+	public static final double DEFAULT_TIMEOUT = 2.0;
+
+	private final List<Waypoint> waypoints;
+	private final MotionProfiles profiles;
+	private final PathDirection direction;
+	private final DriveSimulator drive;
+	private final VirtualClock clock = new VirtualClock();
+
+	private double lookAheadDistance;
+	private MotionController motionController;
+	private double period = DEFAULT_PERIOD;
+	private double timeout = DEFAULT_TIMEOUT;
+
+	private final MotionState setpoint = new MotionState();
+	private final MotionState current = new MotionState();
+	private final Pose2D controlPose = new Pose2D();
+	private final RobotSpeed command = new RobotSpeed();
+
+	/**
+	 * Creates a simulation for a path.  Note that each run adds a completion listener to the
+	 * last way-point, so a way-point list should not be shared between concurrent simulations.
+	 *
+	 * @param waypoints - path way-points (from PathBuilder.createWaypoints())
+	 * @param profiles - forward motion profile along the path
+	 * @param direction - path direction used when building the path
+	 * @param drive - drive-train simulation
+	 * @param lookAheadDistance - pure pursuit look ahead distance
+	 */
+	public AutonomousSimulation(List<Waypoint> waypoints, MotionProfiles profiles, PathDirection direction,
+			DriveSimulator drive, double lookAheadDistance) {
+		this.waypoints = waypoints;
+		this.profiles = profiles;
+		this.direction = direction;
+		this.drive = drive;
+		this.lookAheadDistance = lookAheadDistance;
+	}
+
+	public void setLookAheadDistance(double lookAheadDistance) {
+		this.lookAheadDistance = lookAheadDistance;
+	}
+
+	/**
+	 * Closes the loop on the path distance with the provided controller, null for open loop.
+	 *
+	 * @param motionController - forward motion controller
+	 */
+	public void setMotionController(MotionController motionController) {
+		this.motionController = motionController;
+	}
+
+	public void setPeriod(double period) {
+		this.period = period;
+	}
+
+	public void setTimeout(double timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Returns the drive-train simulation.
+	 *
+	 * @return drive simulator
+	 */
+	public DriveSimulator getDrive() {
+		return drive;
+	}
+
+	/**
+	 * Runs the routine from the given starting pose until the path is complete or timed out.
+	 *
+	 * @param startPose - initial robot pose
+	 * @return simulation results
+	 */
+	public SimulationResult run(Pose2D startPose) {
+
+		AdaptivePurePursuitController controller = new AdaptivePurePursuitController(waypoints, lookAheadDistance);
+		drive.reset(startPose);
+		profiles.reset();
+		clock.reset(0);
+		if (motionController != null) {
+			motionController.reset();
+		}
+
+		double endTime = profiles.getTotalDuration() + timeout;
+		double maxError = 0;
+		double sumSquaredError = 0;
+		int ticks = 0;
+		boolean complete = false;
+
+		while (clock.getTime() <= endTime) {
+			double time = clock.getTime();
+
+			profiles.getSetpoint(time, setpoint);
+
+			// controllers see the robot as driving forward along the path
+			Pose2D pose = drive.getPose();
+			controlPose.x = pose.x;
+			controlPose.y = pose.y;
+			controlPose.heading = pose.heading;
+			if (direction == PathDirection.Reversed) {
+				controlPose.reverse();
+			}
+
+			double curvature = controller.update(controlPose);
+
+			double error = getCrossTrackError(controlPose.x, controlPose.y);
+			maxError = Math.max(maxError, error);
+			sumSquaredError += error * error;
+			ticks++;
+
+			if (controller.isComplete()) {
+				complete = true;
+				break;
+			}
+
+			double velocity = setpoint.velocity;
+			if (motionController != null) {
+				current.time = time;
+				current.position = direction.sign * drive.getDistance();
+				current.velocity = direction.sign * drive.getSpeed().forward;
+				velocity = motionController.update(time, current, setpoint);
+			}
+
+			command.update(direction.sign * velocity, velocity * curvature, 0);
+			drive.update(period, command);
+			clock.advance(period);
+		}
+
+		Waypoint end = waypoints.get(waypoints.size() - 1);
+		Pose2D pose = drive.getPose();
+		return new SimulationResult(complete, clock.getTime(), maxError,
+				ticks > 0 ? Math.sqrt(sumSquaredError / ticks) : 0,
+				end.distance(pose.x, pose.y), new Pose2D(pose), ticks);
+	}
+
+	/**
+	 * Returns the distance from the point to the closest point on the way-point poly-line.
+	 */
+	private double getCrossTrackError(double x, double y) {
+		double min = Double.MAX_VALUE;
+		Waypoint prev = waypoints.get(0);
+		for (int i = 1; i < waypoints.size(); i++) {
+			Waypoint next = waypoints.get(i);
+			double sx = next.x - prev.x;
+			double sy = next.y - prev.y;
+			double px = x - prev.x;
+			double py = y - prev.y;
+			double lengthSquared = sx * sx + sy * sy;
+			double t = lengthSquared > 0 ? Math.max(0, Math.min(1, (px * sx + py * sy) / lengthSquared)) : 0;
+			double ex = px - t * sx;
+			double ey = py - t * sy;
+			min = Math.min(min, ex * ex + ey * ey);
+			prev = next;
+		}
+		return Math.sqrt(min);
+	}
+}
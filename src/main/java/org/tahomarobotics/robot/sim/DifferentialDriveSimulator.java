@@ -0,0 +1,78 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import org.tahomarobotics.robot.state.RobotSpeed;
+
+/**
+ * Differential (tank) drive simulation.  The commanded forward and rotational speeds are
+ * converted to left and right wheel speeds, each of which lags the command.  Strafe is ignored.
+ */
+public class DifferentialDriveSimulator extends DriveSimulator {
+
+	private final double trackWidth;
+	private final double timeConstant;
+	private final double maxAcceleration;
+	private final double maxSpeed;
+
+	private double left;
+	private double right;
+
+	/**
+	 * Creates a differential drive simulation.
+	 *
+	 * @param trackWidth - distance between the left and right wheels (inches)
+	 * @param timeConstant - motor time constant (seconds)
+	 * @param maxAcceleration - maximum wheel acceleration (inches/second^2)
+	 * @param maxSpeed - maximum wheel speed (inches/second)
+	 */
+	public DifferentialDriveSimulator(double trackWidth, double timeConstant, double maxAcceleration, double maxSpeed) {
+		this.trackWidth = trackWidth;
+		this.timeConstant = timeConstant;
+		this.maxAcceleration = maxAcceleration;
+		this.maxSpeed = maxSpeed;
+	}
+
+	@Override
+	protected void resetMotors() {
+		left = 0;
+		right = 0;
+	}
+
+	@Override
+	protected void updateSpeed(double dt, RobotSpeed command) {
+		double turn = command.rotational * trackWidth / 2;
+		double lag = lagFactor(dt, timeConstant);
+		double maxDelta = maxAcceleration * dt;
+
+		left = lag(left, command.forward - turn, lag, maxDelta, maxSpeed);
+		right = lag(right, command.forward + turn, lag, maxDelta, maxSpeed);
+
+		speed.update((left + right) / 2, (right - left) / trackWidth, 0);
+	}
+
+	public double getLeftSpeed() {
+		return left;
+	}
+
+	public double getRightSpeed() {
+		return right;
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.state.RobotSpeed;
+
+/**
+ * Kinematic drive-train simulation which integrates commanded robot speeds into a field pose.
+ * Motors are modeled as a first order lag towards the commanded speed, limited by a maximum
+ * acceleration and speed.
+ * <p>
+ * Speeds are robot relative: forward and strafe (left positive) in inches/second and rotational in
+ * radians/second (counter-clockwise positive).  Pose heading is in degrees.
+ */
+public abstract class DriveSimulator {
+
+	protected final Pose2D pose = new Pose2D();
+	protected final RobotSpeed speed = new RobotSpeed();
+
+	// signed distance traveled in the forward direction
+	protected double distance;
+
+	/**
+	 * Places the robot at the given pose at rest.
+	 *
+	 * @param initialPose - starting pose
+	 */
+	public void reset(Pose2D initialPose) {
+		pose.x = initialPose.x;
+		pose.y = initialPose.y;
+		pose.heading = initialPose.heading;
+		speed.update(0, 0, 0);
+		distance = 0;
+		resetMotors();
+	}
+
+	/**
+	 * Advance the simulation by the time step with the provided commanded speed.
+	 *
+	 * @param dt - time step (seconds)
+	 * @param command - commanded robot relative speed
+	 */
+	public void update(double dt, RobotSpeed command) {
+		updateSpeed(dt, command);
+		integrate(dt);
+	}
+
+	/**
+	 * Clears any internal motor state.
+	 */
+	protected abstract void resetMotors();
+
+	/**
+	 * Update the actual robot speed from the commanded speed.
+	 *
+	 * @param dt - time step (seconds)
+	 * @param command - commanded robot relative speed
+	 */
+	protected abstract void updateSpeed(double dt, RobotSpeed command);
+
+	/**
+	 * Integrate the actual speed into the pose assuming a constant speed over the time step
+	 * (exact for arcs).
+	 */
+	private void integrate(double dt) {
+		double heading = Math.toRadians(pose.heading);
+		double dtheta = speed.rotational * dt;
+
+		// arc factors, falling back to a straight line for small rotations
+		double s, c;
+		if (Math.abs(dtheta) < 1e-9) {
+			s = 1.0 - dtheta * dtheta / 6.0;
+			c = dtheta / 2.0;
+		} else {
+			s = Math.sin(dtheta) / dtheta;
+			c = (1.0 - Math.cos(dtheta)) / dtheta;
+		}
+		double dx = (speed.forward * s - speed.strafe * c) * dt;
+		double dy = (speed.forward * c + speed.strafe * s) * dt;
+
+		double cos = Math.cos(heading);
+		double sin = Math.sin(heading);
+		pose.x += dx * cos - dy * sin;
+		pose.y += dx * sin + dy * cos;
+		pose.heading = Math.toDegrees(heading + dtheta);
+		distance += speed.forward * dt;
+	}
+
+	/**
+	 * First order lag of the current value towards the commanded value constrained to the
+	 * maximum rate of change and magnitude.
+	 *
+	 * @param current - current value
+	 * @param command - commanded value
+	 * @param lag - lag factor for this time step (1 - exp(-dt/tau))
+	 * @param maxDelta - maximum change for this time step
+	 * @param max - maximum magnitude
+	 * @return new value
+	 */
+	protected static double lag(double current, double command, double lag, double maxDelta, double max) {
+		command = Math.max(-max, Math.min(max, command));
+		double delta = (command - current) * lag;
+		delta = Math.max(-maxDelta, Math.min(maxDelta, delta));
+		return current + delta;
+	}
+
+	/**
+	 * Returns the lag factor for a first order system with the given time constant.
+	 *
+	 * @param dt - time step (seconds)
+	 * @param timeConstant - time constant (seconds)
+	 * @return lag factor
+	 */
+	protected static double lagFactor(double dt, double timeConstant) {
+		return timeConstant > 0 ? 1.0 - Math.exp(-dt / timeConstant) : 1.0;
+	}
+
+	/**
+	 * Returns the simulated pose.  The returned object is updated in place by the simulation.
+	 *
+	 * @return robot pose
+	 */
+	public Pose2D getPose() {
+		return pose;
+	}
+
+	/**
+	 * Returns the actual robot relative speed.
+	 *
+	 * @return robot speed
+	 */
+	public RobotSpeed getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Returns the signed distance traveled in the forward direction (encoder distance).
+	 *
+	 * @return distance (inches)
+	 */
+	public double getDistance() {
+		return distance;
+	}
+}
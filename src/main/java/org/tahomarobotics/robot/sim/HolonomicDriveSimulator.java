@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import org.tahomarobotics.robot.state.RobotSpeed;
+
+/**
+ * Holonomic (swerve/mecanum) drive simulation.  Forward, strafe and rotational speeds each lag
+ * their command independently.
+ */
+public class HolonomicDriveSimulator extends DriveSimulator {
+
+	private final double timeConstant;
+	private final double maxAcceleration;
+	private final double maxSpeed;
+	private final double maxRotationalAcceleration;
+	private final double maxRotationalSpeed;
+
+	/**
+	 * Creates a holonomic drive simulation.
+	 *
+	 * @param timeConstant - motor time constant (seconds)
+	 * @param maxAcceleration - maximum translational acceleration (inches/second^2)
+	 * @param maxSpeed - maximum translational speed (inches/second)
+	 * @param maxRotationalAcceleration - maximum rotational acceleration (radians/second^2)
+	 * @param maxRotationalSpeed - maximum rotational speed (radians/second)
+	 */
+	public HolonomicDriveSimulator(double timeConstant, double maxAcceleration, double maxSpeed,
+			double maxRotationalAcceleration, double maxRotationalSpeed) {
+		this.timeConstant = timeConstant;
+		this.maxAcceleration = maxAcceleration;
+		this.maxSpeed = maxSpeed;
+		this.maxRotationalAcceleration = maxRotationalAcceleration;
+		this.maxRotationalSpeed = maxRotationalSpeed;
+	}
+
+	@Override
+	protected void resetMotors() {
+	}
+
+	@Override
+	protected void updateSpeed(double dt, RobotSpeed command) {
+		double lag = lagFactor(dt, timeConstant);
+		double maxDelta = maxAcceleration * dt;
+
+		double forward = lag(speed.forward, command.forward, lag, maxDelta, maxSpeed);
+		double strafe = lag(speed.strafe, command.strafe, lag, maxDelta, maxSpeed);
+		double rotational = lag(speed.rotational, command.rotational, lag,
+				maxRotationalAcceleration * dt, maxRotationalSpeed);
+
+		// keep the translation within the maximum speed in any direction
+		double magnitude = Math.sqrt(forward * forward + strafe * strafe);
+		if (magnitude > maxSpeed) {
+			forward *= maxSpeed / magnitude;
+			strafe *= maxSpeed / magnitude;
+		}
+
+		speed.update(forward, rotational, strafe);
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import java.util.List;
+
+import org.tahomarobotics.robot.motion.MotionController;
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.path.AdaptivePurePursuitController;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.path.Waypoint;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.util.ChartData;
+
+/**
+ * Log Replay feeds a recorded pose and sensor stream through the path and motion controllers,
+ * typically with modified parameters, and compares the new outputs with the recorded ones.  The
+ * controllers are driven by the recorded time stamps rather than the wall clock so the replay is
+ * deterministic and runs as fast as the CPU allows.
+ * <p>
+ * The recorded poses are used as-is; the new outputs do not feed back into the robot motion.
+ */
+public class LogReplay {
+
+	/**
+	 * Replayed outputs and their difference to the recorded outputs.
+	 */
+	public static class Result {
+
+		public final ReplayLog log;
+		public final double[] curvature;
+
+		// replayed outputs, null when no motion controller was replayed
+		public final double[] output;
+
+		// maximum absolute and root mean square differences (output differences NaN when not replayed)
+		public final double maxCurvatureDifference;
+		public final double rmsCurvatureDifference;
+		public final double maxOutputDifference;
+		public final double rmsOutputDifference;
+
+		// sample index of the largest output difference
+		public final int maxOutputDifferenceIndex;
+
+		private Result(ReplayLog log, double[] curvature, double[] output) {
+			this.log = log;
+			this.curvature = curvature;
+			this.output = output;
+
+			double maxCurvature = 0, sumCurvature = 0;
+			double maxOutput = 0, sumOutput = 0;
+			int maxOutputIndex = -1;
+			for (int i = 0; i < log.length; i++) {
+				double dc = Math.abs(curvature[i] - log.curvature[i]);
+				maxCurvature = Math.max(maxCurvature, dc);
+				sumCurvature += dc * dc;
+				if (output == null) {
+					continue;
+				}
+				double doutput = Math.abs(output[i] - log.output[i]);
+				if (doutput > maxOutput) {
+					maxOutput = doutput;
+					maxOutputIndex = i;
+				}
+				sumOutput += doutput * doutput;
+			}
+			int n = Math.max(1, log.length);
+			maxCurvatureDifference = maxCurvature;
+			rmsCurvatureDifference = Math.sqrt(sumCurvature / n);
+			maxOutputDifference = output == null ? Double.NaN : maxOutput;
+			rmsOutputDifference = output == null ? Double.NaN : Math.sqrt(sumOutput / n);
+			maxOutputDifferenceIndex = maxOutputIndex;
+		}
+
+		/**
+		 * Creates a chart of the recorded and replayed outputs over time.
+		 *
+		 * @return chart data
+		 */
+		public ChartData createChartData() {
+			if (output == null) {
+				ChartData chartData = new ChartData("Log Replay", "Time (sec)", "Curvature",
+						new String[] { "recorded curvature", "replayed curvature" });
+				for (int i = 0; i < log.length; i++) {
+					chartData.addData(new double[] { log.time[i], log.curvature[i], curvature[i] });
+				}
+				return chartData;
+			}
+			ChartData chartData = new ChartData("Log Replay", "Time (sec)", "Output",
+					new String[] { "recorded curvature", "replayed curvature", "recorded output", "replayed output" });
+			for (int i = 0; i < log.length; i++) {
+				chartData.addData(new double[] { log.time[i], log.curvature[i], curvature[i], log.output[i], output[i] });
+			}
+			return chartData;
+		}
+
+		/**
+		 * Indicates if the motion controller was replayed and the outputs compared.
+		 */
+		public boolean hasOutput() {
+			return output != null;
+		}
+
+		@Override
+		public String toString() {
+			if (output == null) {
+				return String.format("%d samples, curvature diff max %8.5f rms %8.5f, output not replayed",
+						log.length, maxCurvatureDifference, rmsCurvatureDifference);
+			}
+			return String.format("%d samples, curvature diff max %8.5f rms %8.5f, output diff max %8.4f rms %8.4f (at %6.3f sec)",
+					log.length, maxCurvatureDifference, rmsCurvatureDifference, maxOutputDifference, rmsOutputDifference,
+					maxOutputDifferenceIndex >= 0 ? log.time[maxOutputDifferenceIndex] : 0.0);
+		}
+	}
+
+	private final List<Waypoint> waypoints;
+	private final PathDirection direction;
+	private final double lookAheadDistance;
+	private final MotionController motionController;
+
+	/**
+	 * Creates a replay for the given path and controller parameters.
+	 *
+	 * @param waypoints - path way-points the log was recorded on
+	 * @param direction - path direction
+	 * @param lookAheadDistance - pure pursuit look ahead distance to replay with
+	 * @param motionController - motion controller to replay with (null to skip)
+	 */
+	public LogReplay(List<Waypoint> waypoints, PathDirection direction, double lookAheadDistance,
+			MotionController motionController) {
+		this.waypoints = waypoints;
+		this.direction = direction;
+		this.lookAheadDistance = lookAheadDistance;
+		this.motionController = motionController;
+	}
+
+	/**
+	 * Replays the log through the controllers.
+	 *
+	 * @param log - recorded log
+	 * @return replayed outputs and differences
+	 */
+	public Result run(ReplayLog log) {
+		double[] curvature = new double[log.length];
+		double[] output = motionController != null ? new double[log.length] : null;
+
+		AdaptivePurePursuitController controller = new AdaptivePurePursuitController(waypoints, lookAheadDistance);
+		if (motionController != null) {
+			motionController.reset();
+		}
+
+		Pose2D pose = new Pose2D();
+		MotionState current = new MotionState();
+		MotionState setpoint = new MotionState();
+
+		for (int i = 0; i < log.length; i++) {
+			double time = log.time[i];
+
+			pose.x = log.x[i];
+			pose.y = log.y[i];
+			pose.heading = log.heading[i];
+			if (direction == PathDirection.Reversed) {
+				pose.reverse();
+			}
+			curvature[i] = controller.update(pose);
+
+			if (motionController != null) {
+				current.time = time;
+				current.position = log.position[i];
+				current.velocity = log.velocity[i];
+				setpoint.time = time;
+				setpoint.position = log.setpointPosition[i];
+				setpoint.velocity = log.setpointVelocity[i];
+				setpoint.acceleration = log.setpointAcceleration[i];
+				output[i] = motionController.update(time, current, setpoint);
+			}
+		}
+
+		return new Result(log, curvature, output);
+	}
+}
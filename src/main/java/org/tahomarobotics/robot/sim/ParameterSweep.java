@@ -0,0 +1,248 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import org.tahomarobotics.robot.path.PathConstants;
+import org.tahomarobotics.robot.state.Pose2D;
+import org.tahomarobotics.robot.util.ChartData;
+
+/**
+ * Parameter Sweep runs simulations of an autonomous routine over a set of candidate look ahead
+ * distances and motion controller gains in parallel on a fork-join pool and ranks them by tracking
+ * error and completion time.
+ * <p>
+ * Candidates are generated either as a full grid over the parameter ranges or as a seeded random
+ * search within the ranges.  Parameters without a range keep their default value (which is open
+ * loop: kffV of one and all other gains zero).
+ */
+public class ParameterSweep {
+
+	public enum Parameter {
+		LookAhead, kP, kV, kI, kffV, kffA;
+	}
+
+	// candidates simulated by a single fork-join task
+	private static final int TASK_SIZE = 4;
+
+	private final Supplier<AutonomousSimulation> simulationFactory;
+	private final Pose2D startPose;
+
+	private final double[] min = { PathConstants.LOOKAHEAD_DISTANCE, 0, 0, 0, 1, 0 };
+	private final double[] max = min.clone();
+	private final int[] steps = { 1, 1, 1, 1, 1, 1 };
+
+	private double errorWeight = 1.0;
+	private double timeWeight = 1.0;
+	private double positionTolerance = 1.0;
+
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	/**
+	 * Creates a sweep of the routine produced by the factory.  The factory is called once for
+	 * every task so that simulations (way-points, profiles and drive) are never shared between threads.
+	 *
+	 * @param simulationFactory - creates a new simulation of the routine
+	 * @param startPose - starting pose of the routine
+	 */
+	public ParameterSweep(Supplier<AutonomousSimulation> simulationFactory, Pose2D startPose) {
+		this.simulationFactory = simulationFactory;
+		this.startPose = startPose;
+	}
+
+	/**
+	 * Sets the range searched for a parameter.
+	 *
+	 * @param parameter - parameter to be swept
+	 * @param min - minimum value
+	 * @param max - maximum value
+	 * @param steps - number of grid values including the end points
+	 */
+	public void setRange(Parameter parameter, double min, double max, int steps) {
+		int i = parameter.ordinal();
+		this.min[i] = min;
+		this.max[i] = max;
+		this.steps[i] = Math.max(1, steps);
+	}
+
+	/**
+	 * Sets a parameter to a single value.
+	 *
+	 * @param parameter - parameter to be fixed
+	 * @param value - parameter value
+	 */
+	public void setValue(Parameter parameter, double value) {
+		setRange(parameter, value, value, 1);
+	}
+
+	/**
+	 * Sets the weighting of the score: errorWeight * rms cross track error + timeWeight * completion time.
+	 *
+	 * @param errorWeight - weight per inch of rms cross track error
+	 * @param timeWeight - weight per second of completion time
+	 */
+	public void setScoreWeights(double errorWeight, double timeWeight) {
+		this.errorWeight = errorWeight;
+		this.timeWeight = timeWeight;
+	}
+
+	public void setPositionTolerance(double positionTolerance) {
+		this.positionTolerance = positionTolerance;
+	}
+
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns every combination of the parameter grid values.
+	 *
+	 * @return list of candidates
+	 */
+	public List<SweepParameters> createGrid() {
+		List<SweepParameters> candidates = new ArrayList<>();
+		int[] index = new int[steps.length];
+		double[] values = new double[steps.length];
+
+		while (true) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = steps[i] > 1 ? min[i] + (max[i] - min[i]) * index[i] / (steps[i] - 1) : min[i];
+			}
+			candidates.add(createParameters(values));
+
+			// advance the multi-dimensional index
+			int i = 0;
+			while (i < index.length && ++index[i] >= steps[i]) {
+				index[i++] = 0;
+			}
+			if (i == index.length) {
+				break;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns uniformly distributed random candidates within the parameter ranges.
+	 *
+	 * @param count - number of candidates
+	 * @param seed - random seed for repeatable searches
+	 * @return list of candidates
+	 */
+	public List<SweepParameters> createRandom(int count, long seed) {
+		Random random = new Random(seed);
+		List<SweepParameters> candidates = new ArrayList<>(count);
+		double[] values = new double[min.length];
+		for (int n = 0; n < count; n++) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = min[i] + (max[i] - min[i]) * random.nextDouble();
+			}
+			candidates.add(createParameters(values));
+		}
+		return candidates;
+	}
+
+	private static SweepParameters createParameters(double[] values) {
+		return new SweepParameters(values[0], values[1], values[2], values[3], values[4], values[5]);
+	}
+
+	/**
+	 * Creates a chart for plotting the sweep results, one data point per candidate.
+	 *
+	 * @return empty chart data
+	 */
+	public static ChartData createChartData() {
+		return new ChartData("Parameter Sweep", "Candidate", "Score",
+				new String[] { "score", "rms error", "max error", "time" });
+	}
+
+	/**
+	 * Simulates all the candidates in parallel and returns the results ranked best first.
+	 *
+	 * @param candidates - parameter candidates
+	 * @param chartData - chart receiving each result as it completes (may be null)
+	 * @return ranked results
+	 */
+	public List<SweepResult> run(List<SweepParameters> candidates, ChartData chartData) {
+		SweepResult[] results = new SweepResult[candidates.size()];
+		pool.invoke(new SweepTask(candidates, results, 0, results.length, chartData));
+
+		List<SweepResult> ranked = new ArrayList<>(Arrays.asList(results));
+		Collections.sort(ranked);
+		return ranked;
+	}
+
+	private double score(SimulationResult result) {
+		return errorWeight * result.rmsCrossTrackError + timeWeight * result.completionTime;
+	}
+
+	@SuppressWarnings("serial")
+	private class SweepTask extends RecursiveAction {
+
+		private final List<SweepParameters> candidates;
+		private final SweepResult[] results;
+		private final int start;
+		private final int end;
+		private final ChartData chartData;
+
+		private SweepTask(List<SweepParameters> candidates, SweepResult[] results, int start, int end, ChartData chartData) {
+			this.candidates = candidates;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+			this.chartData = chartData;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > TASK_SIZE) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new SweepTask(candidates, results, start, mid, chartData),
+						new SweepTask(candidates, results, mid, end, chartData));
+				return;
+			}
+
+			AutonomousSimulation simulation = simulationFactory.get();
+			for (int i = start; i < end; i++) {
+				SweepParameters parameters = candidates.get(i);
+				simulation.setLookAheadDistance(parameters.lookAheadDistance);
+				simulation.setMotionController(parameters.createMotionController(positionTolerance));
+
+				SimulationResult result = simulation.run(startPose);
+				SweepResult sweepResult = results[i] = new SweepResult(i, parameters, result, score(result));
+
+				if (chartData != null) {
+					synchronized (chartData) {
+						chartData.addData(new double[] { i, sweepResult.score, result.rmsCrossTrackError,
+								result.maxCrossTrackError, result.completionTime });
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import java.util.List;
+
+import org.tahomarobotics.robot.util.ChartData;
+
+/**
+ * Recorded robot loop samples held in primitive columns for replay.  Logs are recorded and stored
+ * as ChartData with the series listed in {@link Column}, the x-axis being the loop time.
+ */
+public class ReplayLog {
+
+	/**
+	 * Recorded series in ChartData order (after the time x-axis).
+	 */
+	public enum Column {
+		X, Y, Heading, Position, Velocity, SetpointPosition, SetpointVelocity, SetpointAcceleration, Curvature, Output;
+	}
+
+	public final int length;
+
+	// loop time (seconds)
+	public final double[] time;
+
+	// robot pose (inches, degrees)
+	public final double[] x;
+	public final double[] y;
+	public final double[] heading;
+
+	// measured distance along path and speed
+	public final double[] position;
+	public final double[] velocity;
+
+	// motion profile set-point
+	public final double[] setpointPosition;
+	public final double[] setpointVelocity;
+	public final double[] setpointAcceleration;
+
+	// recorded controller outputs
+	public final double[] curvature;
+	public final double[] output;
+
+	public ReplayLog(int length) {
+		this.length = length;
+		time = new double[length];
+		x = new double[length];
+		y = new double[length];
+		heading = new double[length];
+		position = new double[length];
+		velocity = new double[length];
+		setpointPosition = new double[length];
+		setpointVelocity = new double[length];
+		setpointAcceleration = new double[length];
+		curvature = new double[length];
+		output = new double[length];
+	}
+
+	/**
+	 * Creates an empty chart for recording a log on the robot.  Add one row per loop with
+	 * {time, x, y, heading, position, velocity, setpoint position, setpoint velocity,
+	 * setpoint acceleration, curvature, output}.
+	 *
+	 * @param title - chart title
+	 * @return chart data for recording
+	 */
+	public static ChartData createChartData(String title) {
+		Column[] columns = Column.values();
+		String[] names = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			names[i] = columns[i].name();
+		}
+		return new ChartData(title, "Time (sec)", "Value", names);
+	}
+
+	/**
+	 * Loads a recorded log from chart data created by {@link #createChartData(String)}.
+	 *
+	 * @param chartData - recorded chart data
+	 * @return replay log
+	 */
+	public static ReplayLog fromChartData(ChartData chartData) {
+		Column[] columns = Column.values();
+		if (chartData.getSeriesCount() != columns.length) {
+			throw new IllegalArgumentException("Expected " + columns.length + " series but found " + chartData.getSeriesCount());
+		}
+		for (int i = 0; i < columns.length; i++) {
+			if (!columns[i].name().equals(chartData.getSeriesName(i))) {
+				throw new IllegalArgumentException("Unexpected series " + chartData.getSeriesName(i) + " for " + columns[i]);
+			}
+		}
+
+		List<double[]> rows = chartData.getData();
+		ReplayLog log = new ReplayLog(rows.size());
+		for (int i = 0; i < log.length; i++) {
+			double[] row = rows.get(i);
+			log.time[i] = row[0];
+			log.x[i] = row[1];
+			log.y[i] = row[2];
+			log.heading[i] = row[3];
+			log.position[i] = row[4];
+			log.velocity[i] = row[5];
+			log.setpointPosition[i] = row[6];
+			log.setpointVelocity[i] = row[7];
+			log.setpointAcceleration[i] = row[8];
+			log.curvature[i] = row[9];
+			log.output[i] = row[10];
+		}
+		return log;
+	}
+
+	/**
+	 * Returns the duration of the log.
+	 *
+	 * @return duration (seconds)
+	 */
+	public double getDuration() {
+		return length > 0 ? time[length - 1] - time[0] : 0;
+	}
+}
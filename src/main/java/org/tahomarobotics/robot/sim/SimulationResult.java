@@ -0,0 +1,63 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import org.tahomarobotics.robot.state.Pose2D;
+
+/**
+ * Outcome of a simulated autonomous routine.
+ */
+public class SimulationResult {
+
+	// true if the path follower reported completion before the time-out
+	public final boolean complete;
+
+	// simulated time at completion or time-out (seconds)
+	public final double completionTime;
+
+	// maximum and root mean square distance from the path (inches)
+	public final double maxCrossTrackError;
+	public final double rmsCrossTrackError;
+
+	// distance from the final pose to the path end-point (inches)
+	public final double endPointError;
+
+	public final Pose2D finalPose;
+
+	public final int ticks;
+
+	public SimulationResult(boolean complete, double completionTime, double maxCrossTrackError,
+			double rmsCrossTrackError, double endPointError, Pose2D finalPose, int ticks) {
+		this.complete = complete;
+		this.completionTime = completionTime;
+		this.maxCrossTrackError = maxCrossTrackError;
+		this.rmsCrossTrackError = rmsCrossTrackError;
+		this.endPointError = endPointError;
+		this.finalPose = finalPose;
+		this.ticks = ticks;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s in %6.3f sec, cross track max %6.2f rms %6.2f, end error %6.2f, %s",
+				complete ? "Completed" : "Timed out", completionTime, maxCrossTrackError, rmsCrossTrackError,
+				endPointError, finalPose);
+	}
+}
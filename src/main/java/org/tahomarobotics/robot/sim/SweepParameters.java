@@ -0,0 +1,61 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+import org.tahomarobotics.robot.motion.MotionController;
+
+/**
+ * One candidate configuration of a parameter sweep: the pure pursuit look ahead distance and the
+ * forward motion controller gains.
+ */
+public class SweepParameters {
+
+	public final double lookAheadDistance;
+	public final double kP;
+	public final double kV;
+	public final double kI;
+	public final double kffV;
+	public final double kffA;
+
+	public SweepParameters(double lookAheadDistance, double kP, double kV, double kI, double kffV, double kffA) {
+		this.lookAheadDistance = lookAheadDistance;
+		this.kP = kP;
+		this.kV = kV;
+		this.kI = kI;
+		this.kffV = kffV;
+		this.kffA = kffA;
+	}
+
+	/**
+	 * Creates a motion controller with these gains.
+	 *
+	 * @param positionTolerance - positional tolerance
+	 * @return new motion controller
+	 */
+	public MotionController createMotionController(double positionTolerance) {
+		return new MotionController(kP, kV, kI, kffV, kffA, positionTolerance);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("lookAhead %6.2f kP %7.4f kV %7.4f kI %7.4f kffV %7.4f kffA %7.4f",
+				lookAheadDistance, kP, kV, kI, kffV, kffA);
+	}
+}
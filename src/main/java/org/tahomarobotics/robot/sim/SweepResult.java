@@ -0,0 +1,54 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+/**
+ * Simulation outcome of one sweep candidate with its ranking score (lower is better).
+ */
+public class SweepResult implements Comparable<SweepResult> {
+
+	public final int index;
+	public final SweepParameters parameters;
+	public final SimulationResult result;
+	public final double score;
+
+	public SweepResult(int index, SweepParameters parameters, SimulationResult result, double score) {
+		this.index = index;
+		this.parameters = parameters;
+		this.result = result;
+		this.score = score;
+	}
+
+	/**
+	 * Completed runs rank ahead of timed out runs, then by score.
+	 */
+	@Override
+	public int compareTo(SweepResult other) {
+		if (result.complete != other.result.complete) {
+			return result.complete ? -1 : 1;
+		}
+		return Double.compare(score, other.score);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("#%-4d score %8.3f %s\n      %s", index, score, parameters, result);
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.sim;
+
+/**
+ * Simulated time source which only advances when told to, allowing simulations to run
+ * deterministically and as fast as the CPU allows.
+ */
+public class VirtualClock {
+
+	private double time;
+
+	public VirtualClock() {
+		this(0);
+	}
+
+	public VirtualClock(double startTime) {
+		time = startTime;
+	}
+
+	/**
+	 * Returns the current simulated time.
+	 *
+	 * @return time (seconds)
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Advances the clock by the provided time step.
+	 *
+	 * @param dt - time step (seconds)
+	 * @return new time (seconds)
+	 */
+	public double advance(double dt) {
+		time += dt;
+		return time;
+	}
+
+	/**
+	 * Sets the clock to the provided time.
+	 *
+	 * @param time - new time (seconds)
+	 */
+	public void reset(double time) {
+		this.time = time;
+	}
+}
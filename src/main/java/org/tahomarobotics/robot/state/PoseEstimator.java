@@ -0,0 +1,361 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.state;
+
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Pose Estimator integrates wheel encoder and gyro changes every loop into a field pose with an
+ * extended Kalman filter over (x, y, heading).  The odometry of each loop and the resulting estimate
+ * are kept in a fixed size ring buffer.  Vision measurements arrive late, so they are fused by
+ * rewinding to the entry at the capture time, correcting it and replaying the odometry recorded
+ * since.  All state is held in pre-allocated primitive arrays and nothing is created per loop.
+ * <p>
+ * Distances are in inches, headings in degrees.  Not thread safe; call from the robot loop.
+ */
+public class PoseEstimator {
+
+	public static final int DEFAULT_CAPACITY = 128;
+
+	private final int capacity;
+
+	// odometry inputs and estimate after each entry
+	private final double[] time;
+	private final double[] forward;
+	private final double[] strafe;
+	private final double[] rotation;
+	private final double[] x;
+	private final double[] y;
+	private final double[] theta;
+	private final double[] covariance;
+
+	// index of the latest entry and number of valid entries
+	private int head = -1;
+	private int count = 0;
+
+	private double prevGyro = Double.NaN;
+
+	// process noise: position variance per inch traveled, heading variance per radian turned and per loop
+	private final double positionNoise;
+	private final double headingNoise;
+	private final double driftNoise;
+
+	private final Pose2D pose = new Pose2D();
+
+	// scratch
+	private final double[] p = new double[9];
+	private final double[] s = new double[9];
+	private final double[] sInv = new double[9];
+	private final double[] k = new double[9];
+	private final double[] tmp = new double[9];
+
+	/**
+	 * Creates an estimator with the default history capacity.
+	 *
+	 * @param positionStdDev - odometry position error per inch traveled (standard deviation, inches)
+	 * @param headingStdDev - gyro error per degree turned (standard deviation, degrees)
+	 */
+	public PoseEstimator(double positionStdDev, double headingStdDev) {
+		this(DEFAULT_CAPACITY, positionStdDev, headingStdDev, 0.01);
+	}
+
+	/**
+	 * Creates an estimator.
+	 *
+	 * @param capacity - number of loops of history kept for latency compensation
+	 * @param positionStdDev - odometry position error per inch traveled (standard deviation, inches)
+	 * @param headingStdDev - gyro error per degree turned (standard deviation, degrees)
+	 * @param driftStdDev - gyro drift per loop (standard deviation, degrees)
+	 */
+	public PoseEstimator(int capacity, double positionStdDev, double headingStdDev, double driftStdDev) {
+		this.capacity = capacity;
+		time = new double[capacity];
+		forward = new double[capacity];
+		strafe = new double[capacity];
+		rotation = new double[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		theta = new double[capacity];
+		covariance = new double[capacity * 9];
+
+		positionNoise = positionStdDev * positionStdDev;
+		double headingRadians = Math.toRadians(headingStdDev);
+		headingNoise = headingRadians * headingRadians / Math.toRadians(1);
+		double driftRadians = Math.toRadians(driftStdDev);
+		driftNoise = driftRadians * driftRadians;
+
+		reset(0, new Pose2D());
+	}
+
+	/**
+	 * Sets the pose with certainty and clears the history.
+	 *
+	 * @param timestamp - time of the pose (seconds)
+	 * @param initialPose - robot pose
+	 */
+	public void reset(double timestamp, Pose2D initialPose) {
+		head = 0;
+		count = 1;
+		time[0] = timestamp;
+		forward[0] = strafe[0] = rotation[0] = 0;
+		x[0] = initialPose.x;
+		y[0] = initialPose.y;
+		theta[0] = Math.toRadians(initialPose.heading);
+		for (int i = 0; i < 9; i++) {
+			covariance[i] = 0;
+		}
+		prevGyro = Double.NaN;
+		updatePose();
+	}
+
+	/**
+	 * Integrates the odometry of one loop (differential drive).
+	 *
+	 * @param timestamp - time of the sample (seconds)
+	 * @param distanceDelta - forward distance traveled since the last update (inches)
+	 * @param gyroHeading - gyro heading (degrees, continuous or wrapped)
+	 * @return estimated pose (updated in place)
+	 */
+	public Pose2D update(double timestamp, double distanceDelta, double gyroHeading) {
+		return update(timestamp, distanceDelta, 0, gyroHeading);
+	}
+
+	/**
+	 * Integrates the odometry of one loop (holonomic drive).
+	 *
+	 * @param timestamp - time of the sample (seconds)
+	 * @param forwardDelta - forward distance traveled since the last update, robot relative (inches)
+	 * @param strafeDelta - left distance traveled since the last update, robot relative (inches)
+	 * @param gyroHeading - gyro heading (degrees, continuous or wrapped)
+	 * @return estimated pose (updated in place)
+	 */
+	public Pose2D update(double timestamp, double forwardDelta, double strafeDelta, double gyroHeading) {
+		double dtheta = Double.isNaN(prevGyro) ? 0 : Math.toRadians(MathUtil.normalizeAngleDegrees(gyroHeading - prevGyro));
+		prevGyro = gyroHeading;
+
+		int prev = head;
+		head = (head + 1) % capacity;
+		count = Math.min(count + 1, capacity);
+
+		time[head] = timestamp;
+		forward[head] = forwardDelta;
+		strafe[head] = strafeDelta;
+		rotation[head] = dtheta;
+		predict(prev, head);
+
+		updatePose();
+		return pose;
+	}
+
+	/**
+	 * Fuses a vision pose measurement captured at an earlier time.
+	 *
+	 * @param captureTime - time the image was captured (seconds)
+	 * @param measured - measured robot pose
+	 * @param positionStdDev - measurement position error (standard deviation, inches)
+	 * @param headingStdDev - measurement heading error (standard deviation, degrees)
+	 * @return false if the measurement was not fused, because the capture time is older than the history
+	 * or the innovation covariance is singular
+	 */
+	public boolean addVisionMeasurement(double captureTime, Pose2D measured, double positionStdDev, double headingStdDev) {
+		int index = find(captureTime);
+		if (index < 0) {
+			return false;
+		}
+
+		if (!correct(index, measured.x, measured.y, Math.toRadians(measured.heading),
+				positionStdDev * positionStdDev, Math.toRadians(headingStdDev) * Math.toRadians(headingStdDev))) {
+			return false;
+		}
+
+		// replay the odometry since the capture
+		int i = index;
+		while (i != head) {
+			int next = (i + 1) % capacity;
+			predict(i, next);
+			i = next;
+		}
+
+		updatePose();
+		return true;
+	}
+
+	/**
+	 * Returns the latest estimated pose.  The object is updated in place by the estimator.
+	 *
+	 * @return robot pose
+	 */
+	public Pose2D getPose() {
+		return pose;
+	}
+
+	/**
+	 * Returns the estimated position variance (inches squared) of the latest estimate.
+	 *
+	 * @return sum of the x and y variances
+	 */
+	public double getPositionVariance() {
+		int c = head * 9;
+		return covariance[c] + covariance[c + 4];
+	}
+
+	/**
+	 * Finds the latest entry at or before the given time.
+	 */
+	private int find(double timestamp) {
+		if (timestamp > time[head]) {
+			return head;
+		}
+		int oldest = (head - count + 1 + capacity) % capacity;
+		if (timestamp < time[oldest]) {
+			return -1;
+		}
+
+		// binary search over the logical order oldest..head
+		int lo = 0;
+		int hi = count - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (time[(oldest + mid) % capacity] <= timestamp) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return (oldest + lo) % capacity;
+	}
+
+	/**
+	 * Propagates the estimate of entry "from" with the odometry of entry "to".
+	 */
+	private void predict(int from, int to) {
+		double ds = forward[to];
+		double dl = strafe[to];
+		double dtheta = rotation[to];
+		double mid = theta[from] + dtheta / 2;
+		double cos = Math.cos(mid);
+		double sin = Math.sin(mid);
+
+		x[to] = x[from] + ds * cos - dl * sin;
+		y[to] = y[from] + ds * sin + dl * cos;
+		theta[to] = theta[from] + dtheta;
+
+		// P = F P F' + Q, F = [1 0 a; 0 1 b; 0 0 1]
+		double a = -ds * sin - dl * cos;
+		double b = ds * cos - dl * sin;
+		int c = from * 9;
+		for (int i = 0; i < 9; i++) {
+			p[i] = covariance[c + i];
+		}
+		// F P
+		for (int j = 0; j < 3; j++) {
+			tmp[j] = p[j] + a * p[6 + j];
+			tmp[3 + j] = p[3 + j] + b * p[6 + j];
+			tmp[6 + j] = p[6 + j];
+		}
+		// (F P) F'
+		int t = to * 9;
+		for (int i = 0; i < 3; i++) {
+			double f0 = tmp[i * 3];
+			double f1 = tmp[i * 3 + 1];
+			double f2 = tmp[i * 3 + 2];
+			covariance[t + i * 3] = f0 + a * f2;
+			covariance[t + i * 3 + 1] = f1 + b * f2;
+			covariance[t + i * 3 + 2] = f2;
+		}
+
+		double distance = Math.abs(ds) + Math.abs(dl);
+		covariance[t] += positionNoise * distance;
+		covariance[t + 4] += positionNoise * distance;
+		covariance[t + 8] += headingNoise * Math.abs(dtheta) + driftNoise;
+	}
+
+	/**
+	 * Kalman correction of an entry with a direct pose measurement (H = I).  The entry is unchanged
+	 * and false returned if the innovation covariance is singular.
+	 */
+	private boolean correct(int index, double mx, double my, double mtheta, double positionVariance, double headingVariance) {
+		int c = index * 9;
+		for (int i = 0; i < 9; i++) {
+			p[i] = covariance[c + i];
+			s[i] = p[i];
+		}
+		s[0] += positionVariance;
+		s[4] += positionVariance;
+		s[8] += headingVariance;
+
+		if (!invert3(s, sInv)) {
+			return false;
+		}
+
+		// K = P S^-1
+		multiply3(p, sInv, k);
+
+		double ex = mx - x[index];
+		double ey = my - y[index];
+		double et = MathUtil.normalizeAngle(mtheta - theta[index]);
+
+		x[index] += k[0] * ex + k[1] * ey + k[2] * et;
+		y[index] += k[3] * ex + k[4] * ey + k[5] * et;
+		theta[index] += k[6] * ex + k[7] * ey + k[8] * et;
+
+		// P = (I - K) P
+		multiply3(k, p, tmp);
+		for (int i = 0; i < 9; i++) {
+			covariance[c + i] = p[i] - tmp[i];
+		}
+		return true;
+	}
+
+	private static void multiply3(double[] a, double[] b, double[] out) {
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				out[i * 3 + j] = a[i * 3] * b[j] + a[i * 3 + 1] * b[3 + j] + a[i * 3 + 2] * b[6 + j];
+			}
+		}
+	}
+
+	private static boolean invert3(double[] m, double[] out) {
+		double c00 = m[4] * m[8] - m[5] * m[7];
+		double c01 = m[5] * m[6] - m[3] * m[8];
+		double c02 = m[3] * m[7] - m[4] * m[6];
+		double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+		if (Math.abs(det) < 1e-300) {
+			return false;
+		}
+		double inv = 1.0 / det;
+		out[0] = c00 * inv;
+		out[1] = (m[2] * m[7] - m[1] * m[8]) * inv;
+		out[2] = (m[1] * m[5] - m[2] * m[4]) * inv;
+		out[3] = c01 * inv;
+		out[4] = (m[0] * m[8] - m[2] * m[6]) * inv;
+		out[5] = (m[2] * m[3] - m[0] * m[5]) * inv;
+		out[6] = c02 * inv;
+		out[7] = (m[1] * m[6] - m[0] * m[7]) * inv;
+		out[8] = (m[0] * m[4] - m[1] * m[3]) * inv;
+		return true;
+	}
+
+	private void updatePose() {
+		pose.x = x[head];
+		pose.y = y[head];
+		pose.heading = MathUtil.normalizeAngleDegrees(Math.toDegrees(theta[head]));
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.state;
+
+import java.lang.invoke.VarHandle;
+
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Pose History is a fixed capacity circular buffer of timestamped robot poses used to answer
+ * "where was the robot at time t" for latency compensation.  Entries are stored in primitive arrays
+ * and looked up with a binary search and linear interpolation.
+ * <p>
+ * There must be a single writer (the odometry thread).  Writes never block or wait.  Any number of
+ * threads may query concurrently; a sequence lock lets readers detect an overlapping write and retry,
+ * so each query sees a consistent snapshot.
+ */
+public class PoseHistory {
+
+	private final int capacity;
+
+	private final double[] time;
+	private final double[] x;
+	private final double[] y;
+	private final double[] heading;
+
+	// index of the latest entry and number of valid entries, guarded by sequence
+	private int head = -1;
+	private int count = 0;
+
+	// odd while a write is in progress
+	private volatile long sequence = 0;
+
+	/**
+	 * Creates an empty history.
+	 *
+	 * @param capacity - maximum number of entries retained
+	 */
+	public PoseHistory(int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("capacity must be at least 2");
+		}
+		this.capacity = capacity;
+		time = new double[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		heading = new double[capacity];
+	}
+
+	/**
+	 * Records a pose, overwriting the oldest entry when full.  Timestamps must be increasing.
+	 *
+	 * @param timestamp - time of the pose (seconds)
+	 * @param pose - robot pose
+	 */
+	public void add(double timestamp, Pose2D pose) {
+		add(timestamp, pose.x, pose.y, pose.heading);
+	}
+
+	/**
+	 * Records a pose, overwriting the oldest entry when full.  Timestamps must be increasing.
+	 *
+	 * @param timestamp - time of the pose (seconds)
+	 * @param px - x position (inches)
+	 * @param py - y position (inches)
+	 * @param pheading - heading (degrees)
+	 */
+	public void add(double timestamp, double px, double py, double pheading) {
+		long seq = sequence;
+		sequence = seq + 1;
+		VarHandle.storeStoreFence();
+
+		int next = (head + 1) % capacity;
+		time[next] = timestamp;
+		x[next] = px;
+		y[next] = py;
+		heading[next] = pheading;
+		head = next;
+		if (count < capacity) {
+			count++;
+		}
+
+		sequence = seq + 2;
+	}
+
+	/**
+	 * Removes all entries.  Must be called from the writer thread.
+	 */
+	public void clear() {
+		long seq = sequence;
+		sequence = seq + 1;
+		VarHandle.storeStoreFence();
+		head = -1;
+		count = 0;
+		sequence = seq + 2;
+	}
+
+	/**
+	 * Interpolates the pose at the given time.  Times after the latest entry return the latest pose.
+	 *
+	 * @param timestamp - time of interest (seconds)
+	 * @param out - receives the pose
+	 * @return false if the history is empty or the time is older than the oldest entry
+	 */
+	public boolean getPose(double timestamp, Pose2D out) {
+		while (true) {
+			long seq = sequence;
+			if ((seq & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+
+			boolean found = false;
+			double px = 0;
+			double py = 0;
+			double ph = 0;
+
+			int n = count;
+			int h = head;
+			if (n > 0 && h >= 0 && h < capacity) {
+				int oldest = (h - n + 1 + capacity) % capacity;
+				if (timestamp >= time[h]) {
+					px = x[h];
+					py = y[h];
+					ph = MathUtil.normalizeAngleDegrees(heading[h]);
+					found = true;
+				} else if (timestamp >= time[oldest]) {
+					// latest logical index with time <= timestamp, always below n - 1 here
+					int lo = 0;
+					int hi = n - 1;
+					while (lo < hi) {
+						int mid = (lo + hi + 1) >>> 1;
+						if (time[(oldest + mid) % capacity] <= timestamp) {
+							lo = mid;
+						} else {
+							hi = mid - 1;
+						}
+					}
+					int i0 = (oldest + lo) % capacity;
+					int i1 = (i0 + 1) % capacity;
+					double t0 = time[i0];
+					double dt = time[i1] - t0;
+					double f = dt > 0 ? (timestamp - t0) / dt : 0;
+					px = x[i0] + (x[i1] - x[i0]) * f;
+					py = y[i0] + (y[i1] - y[i0]) * f;
+					ph = MathUtil.normalizeAngleDegrees(
+							heading[i0] + MathUtil.normalizeAngleDegrees(heading[i1] - heading[i0]) * f);
+					found = true;
+				}
+			}
+
+			VarHandle.loadLoadFence();
+			if (sequence != seq) {
+				continue;
+			}
+
+			if (found) {
+				out.x = px;
+				out.y = py;
+				out.heading = ph;
+			}
+			return found;
+		}
+	}
+
+	/**
+	 * Returns the time of the latest entry.
+	 *
+	 * @return time (seconds) or NaN when empty
+	 */
+	public double getLatestTime() {
+		while (true) {
+			long seq = sequence;
+			if ((seq & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			int h = head;
+			double t = h >= 0 && h < capacity ? time[h] : Double.NaN;
+			VarHandle.loadLoadFence();
+			if (sequence == seq) {
+				return t;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries retained.
+	 *
+	 * @return entry count
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the maximum number of entries retained.
+	 *
+	 * @return capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.statespace;
+
+import java.util.Arrays;
+
+/**
+ * Discrete linear quadratic regulator.  The feed-back gain is found from the discrete Riccati
+ * equation when constructed and cached for the plant, period and weights, so each update is only a
+ * couple of small matrix-vector products and does not allocate.
+ * <p>
+ * Optionally a plant inversion feed-forward is added to drive the reference to the next reference.
+ */
+public class DiscreteLQR {
+
+	private final LinearPlant.Discrete plant;
+
+	// feed-back gain (inputs x states)
+	private final double[][] K;
+
+	// pseudo-inverse of B for the feed-forward (inputs x states)
+	private final double[][] Binv;
+
+	private final double[] maxInput;
+
+	private final double[] error;
+	private final double[] next;
+	private final double[] feedforward;
+
+	/**
+	 * Creates a regulator using Bryson's rule: the cost of each state and input is the inverse
+	 * square of the maximum acceptable excursion.
+	 *
+	 * @param plant - continuous plant model
+	 * @param stateTolerances - acceptable error for each state
+	 * @param inputTolerances - acceptable effort for each input
+	 * @param dt - loop period (seconds)
+	 */
+	public DiscreteLQR(LinearPlant plant, double[] stateTolerances, double[] inputTolerances, double dt) {
+		this(plant, bryson(stateTolerances), bryson(inputTolerances), dt);
+	}
+
+	/**
+	 * Creates a regulator with the provided cost matrices.
+	 *
+	 * @param plant - continuous plant model
+	 * @param Q - state cost (states x states)
+	 * @param R - input cost (inputs x inputs)
+	 * @param dt - loop period (seconds)
+	 */
+	public DiscreteLQR(LinearPlant plant, double[][] Q, double[][] R, double dt) {
+		this.plant = plant.discretize(dt);
+		this.K = this.plant.getGain(new GainKey(DiscreteLQR.class, Q, R), discrete -> calculateGain(discrete, Q, R));
+
+		double[][] bt = Matrix.transpose(this.plant.B);
+		Binv = Matrix.multiply(Matrix.inverse(Matrix.multiply(bt, this.plant.B)), bt);
+
+		maxInput = new double[plant.inputs];
+		Arrays.fill(maxInput, Double.POSITIVE_INFINITY);
+
+		error = new double[plant.states];
+		next = new double[plant.states];
+		feedforward = new double[plant.inputs];
+	}
+
+	static double[][] bryson(double[] tolerances) {
+		double[] values = new double[tolerances.length];
+		for (int i = 0; i < tolerances.length; i++) {
+			values[i] = 1.0 / (tolerances[i] * tolerances[i]);
+		}
+		return Matrix.diagonal(values);
+	}
+
+	/**
+	 * Calculates the feed-back gain using Bryson's rule without caching it, for gains of many
+	 * different plants such as a gain schedule.
+	 *
+	 * @param plant - continuous plant model
+	 * @param stateTolerances - acceptable error for each state
+	 * @param inputTolerances - acceptable effort for each input
+	 * @param dt - loop period (seconds)
+	 * @return feed-back gain (inputs x states)
+	 */
+	public static double[][] calculateGain(LinearPlant plant, double[] stateTolerances, double[] inputTolerances, double dt) {
+		return calculateGain(plant.discretize(dt), bryson(stateTolerances), bryson(inputTolerances));
+	}
+
+	private static double[][] calculateGain(LinearPlant.Discrete plant, double[][] Q, double[][] R) {
+		// K = (R + B'PB)^-1 B'PA
+		double[][] p = Matrix.solveDARE(plant.A, plant.B, Q, R);
+		double[][] btp = Matrix.multiply(Matrix.transpose(plant.B), p);
+		return Matrix.multiply(Matrix.inverse(Matrix.add(R, Matrix.multiply(btp, plant.B))),
+				Matrix.multiply(btp, plant.A));
+	}
+
+	/**
+	 * Limits each input to +/- the provided value.
+	 *
+	 * @param maxInput - maximum input magnitude (e.g. 12 volts)
+	 */
+	public void setMaxInput(double maxInput) {
+		Arrays.fill(this.maxInput, maxInput);
+	}
+
+	/**
+	 * Returns the feed-back gain matrix (do not modify).
+	 *
+	 * @return gain matrix
+	 */
+	public double[][] getK() {
+		return K;
+	}
+
+	/**
+	 * Calculates the feed-back input to drive the state to the reference.
+	 *
+	 * @param x - current (estimated) state
+	 * @param r - reference state
+	 * @param u - calculated input
+	 */
+	public void calculate(final double[] x, final double[] r, final double[] u) {
+		for (int i = 0; i < error.length; i++) {
+			error[i] = r[i] - x[i];
+		}
+		Matrix.multiply(K, error, u);
+		limit(u);
+	}
+
+	/**
+	 * Calculates the feed-back input to drive the state to the reference plus the feed-forward
+	 * input which moves the reference to the next reference.
+	 *
+	 * @param x - current (estimated) state
+	 * @param r - reference state
+	 * @param nextR - reference state for the next period
+	 * @param u - calculated input
+	 */
+	public void calculate(final double[] x, final double[] r, final double[] nextR, final double[] u) {
+		// u_ff = B^+ (r[k+1] - A r[k])
+		Matrix.multiply(plant.A, r, next);
+		for (int i = 0; i < next.length; i++) {
+			next[i] = nextR[i] - next[i];
+			error[i] = r[i] - x[i];
+		}
+		Matrix.multiply(Binv, next, feedforward);
+		Matrix.multiply(K, error, u);
+		for (int i = 0; i < u.length; i++) {
+			u[i] += feedforward[i];
+		}
+		limit(u);
+	}
+
+	private void limit(double[] u) {
+		for (int i = 0; i < u.length; i++) {
+			u[i] = Math.max(-maxInput[i], Math.min(maxInput[i], u[i]));
+		}
+	}
+}
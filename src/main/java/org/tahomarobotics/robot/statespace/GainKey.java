@@ -0,0 +1,56 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.statespace;
+
+import java.util.Arrays;
+
+/**
+ * Cache key for gains calculated from a discrete plant and weighting matrices, held by the discrete
+ * plant.  The type of gain (the class calculating it) and the weights are compared by value.
+ */
+class GainKey {
+
+	private final Class<?> type;
+	private final double[][][] weights;
+	private final int hash;
+
+	GainKey(Class<?> type, double[][]... weights) {
+		this.type = type;
+		this.weights = new double[weights.length][][];
+		for (int i = 0; i < weights.length; i++) {
+			this.weights[i] = Matrix.copy(weights[i]);
+		}
+		hash = 31 * type.hashCode() + Arrays.deepHashCode(this.weights);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof GainKey)) {
+			return false;
+		}
+		GainKey other = (GainKey) obj;
+		return type == other.type && Arrays.deepEquals(weights, other.weights);
+	}
+}
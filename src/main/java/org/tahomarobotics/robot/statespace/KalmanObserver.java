@@ -0,0 +1,160 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.statespace;
+
+import java.util.Arrays;
+
+/**
+ * Steady state Kalman filter for a linear plant.  The Kalman gain is found from the discrete
+ * Riccati equation when constructed and cached for the plant, period and noise, so predict and
+ * correct are only small matrix-vector products and do not allocate.
+ */
+public class KalmanObserver {
+
+	private final LinearPlant.Discrete plant;
+
+	// Kalman gain (states x outputs)
+	private final double[][] L;
+
+	private final double[] xhat;
+	private final double[] ax;
+	private final double[] bu;
+	private final double[] innovation;
+
+	/**
+	 * Creates an observer from the standard deviations of the process noise (per period) and the
+	 * measurement noise.
+	 *
+	 * @param plant - continuous plant model
+	 * @param stateStdDevs - process noise of each state
+	 * @param measurementStdDevs - measurement noise of each output
+	 * @param dt - loop period (seconds)
+	 */
+	public KalmanObserver(LinearPlant plant, double[] stateStdDevs, double[] measurementStdDevs, double dt) {
+		this(plant, variance(stateStdDevs), variance(measurementStdDevs), dt);
+	}
+
+	/**
+	 * Creates an observer from the process and measurement noise covariances.
+	 *
+	 * @param plant - continuous plant model
+	 * @param Q - process noise covariance (states x states)
+	 * @param R - measurement noise covariance (outputs x outputs)
+	 * @param dt - loop period (seconds)
+	 */
+	public KalmanObserver(LinearPlant plant, double[][] Q, double[][] R, double dt) {
+		this.plant = plant.discretize(dt);
+		this.L = this.plant.getGain(new GainKey(KalmanObserver.class, Q, R), discrete -> calculateGain(discrete, Q, R));
+
+		xhat = new double[plant.states];
+		ax = new double[plant.states];
+		bu = new double[plant.states];
+		innovation = new double[plant.outputs];
+	}
+
+	private static double[][] variance(double[] stdDevs) {
+		double[] values = new double[stdDevs.length];
+		for (int i = 0; i < stdDevs.length; i++) {
+			values[i] = stdDevs[i] * stdDevs[i];
+		}
+		return Matrix.diagonal(values);
+	}
+
+	private static double[][] calculateGain(LinearPlant.Discrete plant, double[][] Q, double[][] R) {
+		// dual of the regulator problem gives the prior error covariance
+		double[][] p = Matrix.solveDARE(Matrix.transpose(plant.A), Matrix.transpose(plant.C), Q, R);
+
+		// L = P C' (C P C' + R)^-1
+		double[][] pct = Matrix.multiply(p, Matrix.transpose(plant.C));
+		return Matrix.multiply(pct, Matrix.inverse(Matrix.add(Matrix.multiply(plant.C, pct), R)));
+	}
+
+	/**
+	 * Sets the estimated state.
+	 *
+	 * @param x - state
+	 */
+	public void setXhat(double[] x) {
+		System.arraycopy(x, 0, xhat, 0, xhat.length);
+	}
+
+	/**
+	 * Sets the estimated state to zero.
+	 */
+	public void reset() {
+		Arrays.fill(xhat, 0);
+	}
+
+	/**
+	 * Returns the estimated state.  The array is updated in place and must not be modified.
+	 *
+	 * @return estimated state
+	 */
+	public double[] getXhat() {
+		return xhat;
+	}
+
+	public double getXhat(int state) {
+		return xhat[state];
+	}
+
+	/**
+	 * Returns the Kalman gain matrix (do not modify).
+	 *
+	 * @return gain matrix
+	 */
+	public double[][] getL() {
+		return L;
+	}
+
+	/**
+	 * Project the state estimate forward by one period with the applied input.
+	 *
+	 * @param u - input applied during the period
+	 */
+	public void predict(final double[] u) {
+		Matrix.multiply(plant.A, xhat, ax);
+		Matrix.multiply(plant.B, u, bu);
+		for (int i = 0; i < xhat.length; i++) {
+			xhat[i] = ax[i] + bu[i];
+		}
+	}
+
+	/**
+	 * Correct the state estimate with a measurement.
+	 *
+	 * @param y - measured outputs
+	 */
+	public void correct(final double[] y) {
+		Matrix.multiply(plant.C, xhat, innovation);
+		for (int i = 0; i < innovation.length; i++) {
+			innovation[i] = y[i] - innovation[i];
+		}
+		double[][] l = L;
+		for (int i = 0; i < xhat.length; i++) {
+			double[] row = l[i];
+			double sum = 0;
+			for (int j = 0; j < row.length; j++) {
+				sum += row[j] * innovation[j];
+			}
+			xhat[i] += sum;
+		}
+	}
+}
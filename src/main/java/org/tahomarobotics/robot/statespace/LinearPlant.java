@@ -0,0 +1,156 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.statespace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Continuous linear time invariant plant model dx/dt = A x + B u, y = C x.  Discretizations are
+ * computed once for each loop period and cached, and each discretization caches the gains
+ * calculated from it, so they are kept (and freed) with the plant.
+ */
+public class LinearPlant {
+
+	/**
+	 * Zero-order hold discretization of the plant for a fixed period: x[k+1] = A x[k] + B u[k].
+	 */
+	public static class Discrete {
+
+		public final LinearPlant plant;
+		public final double dt;
+		public final double[][] A;
+		public final double[][] B;
+		public final double[][] C;
+
+		private final Map<GainKey, double[][]> gains = new ConcurrentHashMap<>();
+
+		private Discrete(LinearPlant plant, double dt, double[][] A, double[][] B) {
+			this.plant = plant;
+			this.dt = dt;
+			this.A = A;
+			this.B = B;
+			this.C = plant.C;
+		}
+
+		/**
+		 * Returns the gain for the key, calculating it the first time it is requested.
+		 */
+		double[][] getGain(GainKey key, Function<Discrete, double[][]> calculation) {
+			return gains.computeIfAbsent(key, k -> calculation.apply(this));
+		}
+	}
+
+	public final double[][] A;
+	public final double[][] B;
+	public final double[][] C;
+
+	public final int states;
+	public final int inputs;
+	public final int outputs;
+
+	private final Map<Double, Discrete> discretizations = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a plant model.
+	 *
+	 * @param A - system matrix (states x states)
+	 * @param B - input matrix (states x inputs)
+	 * @param C - output matrix (outputs x states)
+	 */
+	public LinearPlant(double[][] A, double[][] B, double[][] C) {
+		this.states = A.length;
+		this.inputs = B[0].length;
+		this.outputs = C.length;
+		if (A[0].length != states || B.length != states || C[0].length != states) {
+			throw new IllegalArgumentException("Plant matrix dimensions do not agree");
+		}
+		this.A = Matrix.copy(A);
+		this.B = Matrix.copy(B);
+		this.C = Matrix.copy(C);
+	}
+
+	/**
+	 * Creates a position/velocity model of a DC motor driven mechanism from its feed-forward
+	 * characterization (u = kV * velocity + kA * acceleration).  The states are position and
+	 * velocity, the input is voltage and the output is position.
+	 *
+	 * @param kV - volts per unit velocity
+	 * @param kA - volts per unit acceleration
+	 * @return plant model
+	 */
+	public static LinearPlant createPositionSystem(double kV, double kA) {
+		return new LinearPlant(
+				new double[][] { { 0, 1 }, { 0, -kV / kA } },
+				new double[][] { { 0 }, { 1 / kA } },
+				new double[][] { { 1, 0 } });
+	}
+
+	/**
+	 * Creates a velocity model of a DC motor driven mechanism from its feed-forward
+	 * characterization (u = kV * velocity + kA * acceleration).  The state and output are velocity
+	 * and the input is voltage.
+	 *
+	 * @param kV - volts per unit velocity
+	 * @param kA - volts per unit acceleration
+	 * @return plant model
+	 */
+	public static LinearPlant createVelocitySystem(double kV, double kA) {
+		return new LinearPlant(
+				new double[][] { { -kV / kA } },
+				new double[][] { { 1 / kA } },
+				new double[][] { { 1 } });
+	}
+
+	/**
+	 * Returns the zero-order hold discretization for the given period, calculating it the
+	 * first time it is requested.
+	 *
+	 * @param dt - loop period (seconds)
+	 * @return discrete plant
+	 */
+	public Discrete discretize(double dt) {
+		return discretizations.computeIfAbsent(dt, this::calculateDiscrete);
+	}
+
+	private Discrete calculateDiscrete(double dt) {
+		// exp([A B; 0 0] dt) = [Ad Bd; 0 I]
+		int n = states + inputs;
+		double[][] m = new double[n][n];
+		for (int i = 0; i < states; i++) {
+			for (int j = 0; j < states; j++) {
+				m[i][j] = A[i][j] * dt;
+			}
+			for (int j = 0; j < inputs; j++) {
+				m[i][states + j] = B[i][j] * dt;
+			}
+		}
+		double[][] e = Matrix.exp(m);
+
+		double[][] ad = new double[states][states];
+		double[][] bd = new double[states][inputs];
+		for (int i = 0; i < states; i++) {
+			System.arraycopy(e[i], 0, ad[i], 0, states);
+			System.arraycopy(e[i], states, bd[i], 0, inputs);
+		}
+		return new Discrete(this, dt, ad, bd);
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.statespace;
+
+/**
+ * Small dense matrix operations on double[rows][columns] arrays.  These allocate their results
+ * and are intended for construction time calculations (discretization, Riccati solutions), not
+ * for use in the control loop.
+ */
+public final class Matrix {
+
+	// convergence tolerance and iteration limit of the Riccati solution
+	private static final double DARE_TOLERANCE = 1e-10;
+	private static final int DARE_MAX_ITERATIONS = 100000;
+
+	private Matrix() {
+	}
+
+	public static double[][] identity(int n) {
+		double[][] m = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			m[i][i] = 1;
+		}
+		return m;
+	}
+
+	public static double[][] copy(double[][] a) {
+		double[][] m = new double[a.length][];
+		for (int i = 0; i < a.length; i++) {
+			m[i] = a[i].clone();
+		}
+		return m;
+	}
+
+	public static double[][] transpose(double[][] a) {
+		double[][] m = new double[a[0].length][a.length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < a[0].length; j++) {
+				m[j][i] = a[i][j];
+			}
+		}
+		return m;
+	}
+
+	public static double[][] multiply(double[][] a, double[][] b) {
+		if (a[0].length != b.length) {
+			throw new IllegalArgumentException("Matrix dimensions do not agree");
+		}
+		double[][] m = new double[a.length][b[0].length];
+		for (int i = 0; i < a.length; i++) {
+			for (int k = 0; k < b.length; k++) {
+				double aik = a[i][k];
+				for (int j = 0; j < b[0].length; j++) {
+					m[i][j] += aik * b[k][j];
+				}
+			}
+		}
+		return m;
+	}
+
+	public static double[][] scale(double[][] a, double s) {
+		double[][] m = new double[a.length][a[0].length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < a[0].length; j++) {
+				m[i][j] = a[i][j] * s;
+			}
+		}
+		return m;
+	}
+
+	public static double[][] add(double[][] a, double[][] b) {
+		double[][] m = new double[a.length][a[0].length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < a[0].length; j++) {
+				m[i][j] = a[i][j] + b[i][j];
+			}
+		}
+		return m;
+	}
+
+	public static double[][] subtract(double[][] a, double[][] b) {
+		return add(a, scale(b, -1));
+	}
+
+	/**
+	 * Creates a diagonal matrix from the provided values.
+	 *
+	 * @param values - diagonal values
+	 * @return diagonal matrix
+	 */
+	public static double[][] diagonal(double... values) {
+		double[][] m = new double[values.length][values.length];
+		for (int i = 0; i < values.length; i++) {
+			m[i][i] = values[i];
+		}
+		return m;
+	}
+
+	/**
+	 * Inverts a square matrix with Gauss-Jordan elimination and partial pivoting.
+	 *
+	 * @param a - square matrix
+	 * @return inverse matrix
+	 */
+	public static double[][] inverse(double[][] a) {
+		int n = a.length;
+		double[][] m = copy(a);
+		double[][] inv = identity(n);
+
+		for (int c = 0; c < n; c++) {
+			int pivot = c;
+			for (int r = c + 1; r < n; r++) {
+				if (Math.abs(m[r][c]) > Math.abs(m[pivot][c])) {
+					pivot = r;
+				}
+			}
+			if (Math.abs(m[pivot][c]) < 1e-300) {
+				throw new ArithmeticException("Matrix is singular");
+			}
+			double[] t = m[c]; m[c] = m[pivot]; m[pivot] = t;
+			t = inv[c]; inv[c] = inv[pivot]; inv[pivot] = t;
+
+			double d = m[c][c];
+			for (int j = 0; j < n; j++) {
+				m[c][j] /= d;
+				inv[c][j] /= d;
+			}
+			for (int r = 0; r < n; r++) {
+				if (r != c) {
+					double f = m[r][c];
+					if (f != 0) {
+						for (int j = 0; j < n; j++) {
+							m[r][j] -= f * m[c][j];
+							inv[r][j] -= f * inv[c][j];
+						}
+					}
+				}
+			}
+		}
+		return inv;
+	}
+
+	/**
+	 * Returns the infinity norm (maximum absolute row sum).
+	 *
+	 * @param a - matrix
+	 * @return norm
+	 */
+	public static double norm(double[][] a) {
+		double max = 0;
+		for (double[] row : a) {
+			double sum = 0;
+			for (double v : row) {
+				sum += Math.abs(v);
+			}
+			max = Math.max(max, sum);
+		}
+		return max;
+	}
+
+	/**
+	 * Matrix exponential using a 6th order Pade approximation with scaling and squaring.
+	 *
+	 * @param a - square matrix
+	 * @return e^a
+	 */
+	public static double[][] exp(double[][] a) {
+		int n = a.length;
+		double norm = norm(a);
+		int squarings = norm > 0.5 ? Math.max(0, (int) Math.ceil(Math.log(norm / 0.5) / Math.log(2))) : 0;
+		double[][] x = scale(a, 1.0 / Math.pow(2, squarings));
+
+		final int q = 6;
+		double c = 1;
+		double[][] power = identity(n);
+		double[][] num = identity(n);
+		double[][] den = identity(n);
+		for (int k = 1; k <= q; k++) {
+			c = c * (q - k + 1) / ((2.0 * q - k + 1) * k);
+			power = multiply(power, x);
+			num = add(num, scale(power, c));
+			den = add(den, scale(power, (k % 2 == 0) ? c : -c));
+		}
+		double[][] e = multiply(inverse(den), num);
+
+		for (int i = 0; i < squarings; i++) {
+			e = multiply(e, e);
+		}
+		return e;
+	}
+
+	/**
+	 * Solves the discrete algebraic Riccati equation by fixed point iteration
+	 * P = A'PA - A'PB (R + B'PB)^-1 B'PA + Q.
+	 *
+	 * @param a - system matrix (n x n)
+	 * @param b - input matrix (n x m)
+	 * @param q - state cost (n x n)
+	 * @param r - input cost (m x m)
+	 * @return solution P
+	 */
+	public static double[][] solveDARE(double[][] a, double[][] b, double[][] q, double[][] r) {
+		double[][] at = transpose(a);
+		double[][] bt = transpose(b);
+		double[][] p = copy(q);
+
+		for (int i = 0; i < DARE_MAX_ITERATIONS; i++) {
+			double[][] atp = multiply(at, p);
+			double[][] atpb = multiply(atp, b);
+			double[][] s = add(r, multiply(multiply(bt, p), b));
+			double[][] next = add(subtract(multiply(atp, a), multiply(multiply(atpb, inverse(s)), transpose(atpb))), q);
+
+			double change = norm(subtract(next, p));
+			p = next;
+			if (change <= DARE_TOLERANCE * Math.max(1, norm(p))) {
+				return p;
+			}
+		}
+		throw new ArithmeticException("Riccati equation did not converge");
+	}
+
+	/**
+	 * Multiplies a matrix by a vector without allocation: out = a x.
+	 *
+	 * @param a - matrix
+	 * @param x - vector
+	 * @param out - result vector (not x)
+	 */
+	public static void multiply(double[][] a, double[] x, double[] out) {
+		for (int i = 0; i < a.length; i++) {
+			double[] row = a[i];
+			double sum = 0;
+			for (int j = 0; j < row.length; j++) {
+				sum += row[j] * x[j];
+			}
+			out[i] = sum;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.drive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tahomarobotics.robot.state.RobotSpeed;
+import org.tahomarobotics.robot.util.MathUtil;
+
+/**
+ * Benchmark of the array implementation of the swerve inverse kinematics against an object per
+ * module implementation.
+ */
+public class SwerveKinematicsBenchmark {
+
+	/**
+	 * Straightforward object per module implementation used as the baseline.
+	 */
+	private static class NaiveKinematics {
+
+		private static class ModuleState {
+			private final double angle;
+			private final double speed;
+
+			private ModuleState(double angle, double speed) {
+				this.angle = angle;
+				this.speed = speed;
+			}
+		}
+
+		private final List<double[]> locations = new ArrayList<>();
+		private final double maxModuleSpeed;
+
+		private NaiveKinematics(double[] moduleX, double[] moduleY, double maxModuleSpeed) {
+			for (int i = 0; i < moduleX.length; i++) {
+				locations.add(new double[] { moduleX[i], moduleY[i] });
+			}
+			this.maxModuleSpeed = maxModuleSpeed;
+		}
+
+		private List<ModuleState> toModuleStates(RobotSpeed speed, List<ModuleState> current) {
+			List<ModuleState> states = new ArrayList<>();
+			for (int i = 0; i < locations.size(); i++) {
+				double[] location = locations.get(i);
+				double vx = speed.forward - speed.rotational * location[1];
+				double vy = speed.strafe + speed.rotational * location[0];
+				ModuleState state = new ModuleState(Math.toDegrees(Math.atan2(vy, vx)), Math.hypot(vx, vy));
+				double delta = MathUtil.normalizeAngleDegrees(state.angle - current.get(i).angle);
+				if (Math.abs(delta) > 90) {
+					state = new ModuleState(MathUtil.normalizeAngleDegrees(state.angle + 180), -state.speed);
+				}
+				states.add(state);
+			}
+			double max = 0;
+			for (ModuleState state : states) {
+				max = Math.max(max, Math.abs(state.speed));
+			}
+			if (max > maxModuleSpeed) {
+				List<ModuleState> scaled = new ArrayList<>();
+				for (ModuleState state : states) {
+					scaled.add(new ModuleState(state.angle, state.speed * maxModuleSpeed / max));
+				}
+				states = scaled;
+			}
+			return states;
+		}
+	}
+
+	public static void main(String[] args) {
+		double[] x = { 12, 12, -12, -12 };
+		double[] y = { 12, -12, 12, -12 };
+		SwerveKinematics kinematics = new SwerveKinematics(x, y, 150);
+		NaiveKinematics naive = new NaiveKinematics(x, y, 150);
+
+		double[] angles = new double[4];
+		double[] speeds = new double[4];
+		List<NaiveKinematics.ModuleState> states = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			states.add(new NaiveKinematics.ModuleState(0, 0));
+		}
+		// pre-computed commands so only the kinematics is timed
+		RobotSpeed[] commands = new RobotSpeed[4096];
+		for (int i = 0; i < commands.length; i++) {
+			commands[i] = new RobotSpeed(100 * Math.sin(i * 0.01), 3 * Math.cos(i * 0.007), 80 * Math.cos(i * 0.013));
+		}
+
+		int count = 2000000;
+		double check = 0;
+		for (int pass = 0; pass < 3; pass++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				kinematics.toModuleStates(commands[i & 4095], angles, angles, speeds);
+				check += speeds[0];
+			}
+			long arrays = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				states = naive.toModuleStates(commands[i & 4095], states);
+				check += states.get(0).speed;
+			}
+			long objects = System.nanoTime() - start;
+
+			System.out.format("pass %d: arrays %.1f ns, objects %.1f ns per update\n",
+					pass, (double) arrays / count, (double) objects / count);
+		}
+		System.out.format("checksum %.3f\n", check);
+	}
+}
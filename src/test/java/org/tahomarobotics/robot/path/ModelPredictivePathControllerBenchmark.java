@@ -0,0 +1,72 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import org.tahomarobotics.robot.state.Pose2D;
+
+/**
+ * Benchmark of the worst case (iteration limited) update time of the model predictive path controller
+ * on this machine against the loop budget.  Exits with a failure status when the budget is exceeded.
+ */
+public class ModelPredictivePathControllerBenchmark {
+
+	// loop time budget for a single update (seconds)
+	private static final double BUDGET = 0.005;
+
+	public static void main(String[] args) {
+		PathBuilder builder = new PathBuilder(PathBuilder.PathDirection.Forward, PathBuilder.Mirror.None, new Pose2D(0, 0, 0));
+		builder.addLine(100, 100);
+		builder.addArc(90, 40, 60);
+		builder.addArc(-90, 40, 60);
+		builder.addLine(100, 100);
+
+		ModelPredictivePathController controller = new ModelPredictivePathController(builder.getSections(), 1 / 20.0);
+		controller.setMaxIterations(ModelPredictivePathController.DEFAULT_MAX_ITERATIONS);
+		Pose2D pose = new Pose2D(0, 6, 10);
+
+		int count = 100000;
+		long worst = 0;
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			// alternating offsets keep the solver from converging early
+			pose.x = (i % 200) * 1.5;
+			pose.y = (i % 2 == 0) ? 6 : -6;
+			if (i % 200 == 0) {
+				controller.reset();
+			}
+			long start = System.nanoTime();
+			controller.update(pose);
+			long elapsed = System.nanoTime() - start;
+
+			// second half only, after compilation
+			if (i > count / 2) {
+				worst = Math.max(worst, elapsed);
+				total += elapsed;
+			}
+		}
+		System.out.format("horizon %d, max iterations %d: mean %.1f us, worst %.1f us (budget %.0f us)\n",
+				ModelPredictivePathController.DEFAULT_HORIZON, ModelPredictivePathController.DEFAULT_MAX_ITERATIONS,
+				1e-3 * total / (count / 2), 1e-3 * worst, BUDGET * 1e6);
+
+		if (worst * 1e-9 > BUDGET) {
+			System.exit(1);
+		}
+	}
+}
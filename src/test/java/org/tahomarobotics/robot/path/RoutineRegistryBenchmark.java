@@ -0,0 +1,91 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.tahomarobotics.robot.path.PathBuilder.Mirror;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.state.Pose2D;
+
+/**
+ * Benchmark of compiling a dozen routines sequentially (as when built on selection) and in parallel
+ * with RoutineRegistry.precompute(), and of selecting a compiled routine.
+ */
+public class RoutineRegistryBenchmark {
+
+	public static void main(String[] args) {
+		Mirror[] mirrors = Mirror.values();
+		PathDirection[] directions = PathDirection.values();
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		RoutineRegistry registry = new RoutineRegistry(120);
+		registry.setPool(pool);
+		for (int i = 0; i < 12; i++) {
+			final double length = 40 + 5 * i;
+			final double angle = 30 + 5 * i;
+			registry.register("routine" + i, new Pose2D(20, 40 + 10 * i, 0), builder -> {
+				builder.addLine(length, 100);
+				builder.addArc(angle, 40, 60);
+				builder.addLine(length / 2, 100);
+				builder.addArc(-angle, 30, 60);
+				builder.addSpline(builder.getSections().get(0).startPose.x + 3 * length,
+						builder.getSections().get(0).startPose.y + length, 0, 80);
+				builder.addLine(24, 60);
+			});
+		}
+		List<String> names = new ArrayList<>(registry.getNames());
+		int variants = names.size() * mirrors.length * directions.length;
+
+		int iterations = 20;
+		for (int warmup = 0; warmup < 2; warmup++) {
+			long start = System.nanoTime();
+			for (int n = 0; n < iterations; n++) {
+				for (String name : names) {
+					for (Mirror mirror : mirrors) {
+						for (PathDirection direction : directions) {
+							registry.createMotionProfiles(registry.createBuilder(name, mirror, direction));
+						}
+					}
+				}
+			}
+			double sequential = (System.nanoTime() - start) * 1e-6 / iterations;
+
+			double parallel = 0;
+			for (int n = 0; n < iterations; n++) {
+				parallel += registry.precompute() * 1000 / iterations;
+			}
+
+			int selections = 1000000;
+			double checksum = 0;
+			start = System.nanoTime();
+			for (int n = 0; n < selections; n++) {
+				checksum += registry.get(names.get(n % names.size()), mirrors[n & 3],
+						directions[(n >> 2) & 1]).getLength();
+			}
+			double select = (System.nanoTime() - start) / (double) selections;
+
+			System.out.format("%d variants: sequential %.2f ms, precompute %.2f ms (%d threads), selection %.1f ns (%.0f)\n",
+					variants, sequential, parallel, pool.getParallelism(), select, checksum);
+		}
+	}
+}
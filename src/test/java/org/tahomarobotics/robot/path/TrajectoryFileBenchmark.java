@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.path;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.tahomarobotics.robot.motion.Motion2DProfileFactory;
+import org.tahomarobotics.robot.motion.MotionProfiles;
+import org.tahomarobotics.robot.motion.MotionState;
+import org.tahomarobotics.robot.path.PathBuilder.Mirror;
+import org.tahomarobotics.robot.path.PathBuilder.PathDirection;
+import org.tahomarobotics.robot.state.Pose2D;
+
+/**
+ * Benchmark of building a dozen routines against loading them from trajectory files.
+ */
+public class TrajectoryFileBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		Path directory = Files.createTempDirectory("trajectories");
+		int routines = 12;
+
+		for (int warmup = 0; warmup < 3; warmup++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < routines; i++) {
+				PathBuilder builder = new PathBuilder(PathDirection.Forward, Mirror.None, new Pose2D(20, 40 + 10 * i, 0));
+				builder.addLine(40 + 5 * i, 100);
+				builder.addArc(30 + 5 * i, 40, 60);
+				builder.addLine(20 + 2 * i, 100);
+				builder.addArc(-30 - 5 * i, 30, 60);
+				builder.addLine(24, 60);
+
+				Polyline polyline = builder.createPolyline(0.1);
+				MotionProfiles profiles = Motion2DProfileFactory.createTrapezoidMotionProfile(builder.getSections(), 120, false);
+				TrajectoryFile.write(directory.resolve("routine" + i + ".traj"), polyline, profiles);
+			}
+			double build = (System.nanoTime() - start) * 1e-6;
+
+			start = System.nanoTime();
+			MotionState setpoint = new MotionState();
+			double checksum = 0;
+			for (int i = 0; i < routines; i++) {
+				TrajectoryFile trajectory = TrajectoryFile.load(directory.resolve("routine" + i + ".traj"));
+				trajectory.getSetpoint(trajectory.getTotalDuration() / 2, setpoint);
+				checksum += setpoint.position;
+			}
+			double load = (System.nanoTime() - start) * 1e-6;
+
+			System.out.format("%d routines: build and write %.2f ms, load and evaluate %.2f ms (%.1f)\n",
+					routines, build, load, checksum);
+		}
+
+		for (int i = 0; i < routines; i++) {
+			Files.deleteIfExists(directory.resolve("routine" + i + ".traj"));
+		}
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2020 Tahoma Robotics - http://tahomarobotics.org - Bear Metal 2046 FRC Team
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+ * documentation files (the "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the 
+ * Software, and to permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions 
+ * of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED 
+ * TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ * 
+ */
+package org.tahomarobotics.robot.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.tahomarobotics.robot.path.RoutineDefinitions;
+import org.tahomarobotics.robot.path.TrajectoryResources;
+
+/**
+ * Generates the trajectory files of every variant of the autonomous routines of a robot project into
+ * its class path, where they are loaded with TrajectoryResources.load().
+ * <p>
+ * The routine definitions are robot code, so the goal runs once they are compiled (process-classes)
+ * and writes into the class output directory to be packaged with the classes.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+		requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class GenerateTrajectoriesMojo extends AbstractMojo {
+
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	/**
+	 * Class implementing RoutineDefinitions with a public no-argument constructor.
+	 */
+	@Parameter(property = "trajectory.definitions", required = true)
+	private String definitions;
+
+	/**
+	 * Maximum distance of a chord from its arc when discretizing paths (inches).
+	 */
+	@Parameter(property = "trajectory.tolerance", defaultValue = "0.1")
+	private double tolerance;
+
+	/**
+	 * Class path root the trajectories are written under.
+	 */
+	@Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+	private File outputDirectory;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		try (URLClassLoader classLoader = new URLClassLoader(getClassPath(), getClass().getClassLoader())) {
+
+			RoutineDefinitions routines = (RoutineDefinitions) classLoader.loadClass(definitions)
+					.getDeclaredConstructor().newInstance();
+
+			long start = System.nanoTime();
+			int count = TrajectoryResources.generate(routines.createRoutineRegistry(), tolerance, outputDirectory.toPath());
+			getLog().info(String.format("Generated %d trajectories from %s in %.1f ms", count, definitions,
+					(System.nanoTime() - start) * 1e-6));
+
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new MojoExecutionException("Unable to create routine definitions " + definitions, e);
+
+		} catch (IOException e) {
+			throw new MojoExecutionException("Failed to write trajectories to " + outputDirectory, e);
+		}
+	}
+
+	private URL[] getClassPath() throws MojoExecutionException {
+		try {
+			List<String> elements = project.getCompileClasspathElements();
+			URL[] urls = new URL[elements.size()];
+			for (int i = 0; i < urls.length; i++) {
+				urls[i] = new File(elements.get(i)).toURI().toURL();
+			}
+			return urls;
+
+		} catch (DependencyResolutionRequiredException | MalformedURLException e) {
+			throw new MojoExecutionException("Unable to resolve the project class path", e);
+		}
+	}
+}